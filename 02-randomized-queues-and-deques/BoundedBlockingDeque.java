@@ -0,0 +1,439 @@
+/******************************************************************************
+ *  Compilation:  javac-algs4 BoundedBlockingDeque.java
+ *  Execution:    java-algs4 BoundedBlockingDeque
+ *  Dependencies:
+ *
+ *  A generic, thread-safe double-ended queue with a fixed capacity whose
+ *  insert and remove operations block until they can proceed.
+ *
+ ******************************************************************************/
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *  This class implements a bounded blocking deque, meant to be used as the
+ *  hand-off between producer and consumer threads. It supports inserting and
+ *  removing items from either the front or the back of the data structure,
+ *  like Deque, but a producer that finds the deque full waits until a consumer
+ *  makes room, and a consumer that finds the deque empty waits until a producer
+ *  adds an item. That gives natural backpressure: a fast producer can never run
+ *  more than capacity items ahead of its consumers.
+ *
+ *  Every operation comes in a blocking flavour (putFirst, putLast, takeFirst,
+ *  takeLast) and a timed flavour (offerFirst, offerLast, pollFirst, pollLast)
+ *  that gives up after the given timeout. drainTo removes many items under a
+ *  single lock acquisition, which lets a consumer work in batches.
+ *
+ *  This implementation uses a circular array of fixed capacity, so no node is
+ *  allocated per item, guarded by one lock with two conditions: producers wait
+ *  on notFull and consumers wait on notEmpty. A deque cannot split its lock by
+ *  end the way a linked queue does, because with one item left both ends refer
+ *  to the same slot; splitting the conditions instead means a signal only ever
+ *  wakes a thread that can actually make progress.
+ *
+ *  BoundedBlockingDeque uses the convention that values cannot be null; when
+ *  trying to add a null item, it throws a NullPointerException.
+ *
+ *  @param <Item> the generic type of an item in this deque
+*/
+
+public class BoundedBlockingDeque<Item> implements Iterable<Item> {
+    private final Item[] items;     // circular buffer of items
+    private int          first;     // index of the first item
+    private int          N;         // number of items in the deque
+
+    private final ReentrantLock lock     = new ReentrantLock();
+    private final Condition     notEmpty = lock.newCondition();
+    private final Condition     notFull  = lock.newCondition();
+
+    /**
+    * Construct an empty deque that holds at most capacity items.
+    *
+    * @param capacity the maximum number of items of this deque
+    * @throws IllegalArgumentException if capacity is less than 1
+    */
+    @SuppressWarnings("unchecked")
+    public BoundedBlockingDeque(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity < 1.");
+
+        items = (Item[]) new Object[capacity];
+        first = 0;
+        N     = 0;
+    }
+
+    /**
+    * Number of items currently on this deque.
+    *
+    * @return number of items N on this deque
+    */
+    public int size() {
+        lock.lock();
+        try {
+            return N;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+    * Check if this deque is empty.
+    *
+    * @return true if this deque is empty. False otherwise
+    */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+    * Maximum number of items this deque can hold.
+    *
+    * @return the capacity of this deque
+    */
+    public int capacity() {
+        return items.length;
+    }
+
+    /**
+    * Number of items that can be added before a put blocks.
+    *
+    * @return the capacity minus the current size
+    */
+    public int remainingCapacity() {
+        return items.length - size();
+    }
+
+    /**
+    * Add the item to the front of this deque, waiting for room if necessary.
+    *
+    * @param the item to be added
+    * @throws NullPointerException if the item is null
+    * @throws InterruptedException if interrupted while waiting
+    */
+    public void putFirst(Item item) throws InterruptedException {
+        checkItem(item);
+
+        lock.lockInterruptibly();
+        try {
+            while (N == items.length)
+                notFull.await();
+            linkFirst(item);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+    * Add the item to the end of this deque, waiting for room if necessary.
+    *
+    * @param the item to be added
+    * @throws NullPointerException if the item is null
+    * @throws InterruptedException if interrupted while waiting
+    */
+    public void putLast(Item item) throws InterruptedException {
+        checkItem(item);
+
+        lock.lockInterruptibly();
+        try {
+            while (N == items.length)
+                notFull.await();
+            linkLast(item);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+    * Add the item to the front of this deque, waiting up to the given time for
+    * room if necessary.
+    *
+    * @param the item to be added
+    * @param timeout how long to wait before giving up
+    * @param unit the unit of the timeout argument
+    * @return true if the item was added. False if the timeout elapsed first
+    * @throws NullPointerException if the item is null
+    * @throws InterruptedException if interrupted while waiting
+    */
+    public boolean offerFirst(Item item, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        checkItem(item);
+
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (N == items.length) {
+                if (nanos <= 0)
+                    return false;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            linkFirst(item);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+    * Add the item to the end of this deque, waiting up to the given time for
+    * room if necessary.
+    *
+    * @param the item to be added
+    * @param timeout how long to wait before giving up
+    * @param unit the unit of the timeout argument
+    * @return true if the item was added. False if the timeout elapsed first
+    * @throws NullPointerException if the item is null
+    * @throws InterruptedException if interrupted while waiting
+    */
+    public boolean offerLast(Item item, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        checkItem(item);
+
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (N == items.length) {
+                if (nanos <= 0)
+                    return false;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            linkLast(item);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+    * Remove and return the item from the front of this deque, waiting for an
+    * item if necessary.
+    *
+    * @return the first item of the deque
+    * @throws InterruptedException if interrupted while waiting
+    */
+    public Item takeFirst() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (N == 0)
+                notEmpty.await();
+            return unlinkFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+    * Remove and return the item from the end of this deque, waiting for an
+    * item if necessary.
+    *
+    * @return the last item of the deque
+    * @throws InterruptedException if interrupted while waiting
+    */
+    public Item takeLast() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (N == 0)
+                notEmpty.await();
+            return unlinkLast();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+    * Remove and return the item from the front of this deque, waiting up to the
+    * given time for an item if necessary.
+    *
+    * @param timeout how long to wait before giving up
+    * @param unit the unit of the timeout argument
+    * @return the first item of the deque, or null if the timeout elapsed first
+    * @throws InterruptedException if interrupted while waiting
+    */
+    public Item pollFirst(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (N == 0) {
+                if (nanos <= 0)
+                    return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return unlinkFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+    * Remove and return the item from the end of this deque, waiting up to the
+    * given time for an item if necessary.
+    *
+    * @param timeout how long to wait before giving up
+    * @param unit the unit of the timeout argument
+    * @return the last item of the deque, or null if the timeout elapsed first
+    * @throws InterruptedException if interrupted while waiting
+    */
+    public Item pollLast(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (N == 0) {
+                if (nanos <= 0)
+                    return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return unlinkLast();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+    * Remove every item of this deque, from front to end, and add them to the
+    * given collection without blocking.
+    *
+    * @param c the collection that receives the items
+    * @return the number of items transferred
+    * @throws NullPointerException if the collection is null
+    */
+    public int drainTo(Collection<? super Item> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+    * Remove at most maxItems items of this deque, from front to end, and add
+    * them to the given collection without blocking.
+    *
+    * @param c the collection that receives the items
+    * @param maxItems the maximum number of items to transfer; none if it is
+    *        not positive
+    * @return the number of items transferred
+    * @throws NullPointerException if the collection is null
+    */
+    public int drainTo(Collection<? super Item> c, int maxItems) {
+        if (c == null)
+            throw new NullPointerException("null collection.");
+
+        if (maxItems <= 0)
+            return 0;
+
+        lock.lock();
+        int n = 0;
+        try {
+            // an item only leaves the deque once c has taken it, so the deque
+            // stays consistent if c.add() throws
+            while (n < maxItems && N > 0) {
+                c.add(items[first]);
+                items[first] = null;
+                first = inc(first);
+                N--;
+                n++;
+            }
+            return n;
+        } finally {
+            // a batch may free many slots at once, so wake every producer
+            if (n > 0)
+                notFull.signalAll();
+            lock.unlock();
+        }
+    }
+
+    // check for avoid adding null items
+    private void checkItem(Item item) {
+        if (item == null)
+            throw new NullPointerException("Adding null item.");
+    }
+
+    // next and previous index in the circular buffer
+    private int inc(int i) {
+        return (i + 1 == items.length) ? 0 : i + 1;
+    }
+
+    private int dec(int i) {
+        return (i == 0) ? items.length - 1 : i - 1;
+    }
+
+    // the following helpers must be called holding the lock and with room
+    // (link) or items (unlink) available
+    private void linkFirst(Item item) {
+        first = dec(first);
+        items[first] = item;
+        N++;
+        notEmpty.signal();
+    }
+
+    private void linkLast(Item item) {
+        items[(first + N) % items.length] = item;
+        N++;
+        notEmpty.signal();
+    }
+
+    private Item unlinkFirst() {
+        Item item = items[first];
+        items[first] = null;
+        first = inc(first);
+        N--;
+        notFull.signal();
+        return item;
+    }
+
+    private Item unlinkLast() {
+        int  last = (first + N - 1) % items.length;
+        Item item = items[last];
+        items[last] = null;
+        N--;
+        notFull.signal();
+        return item;
+    }
+
+    /**
+     * Returns the items of this deque in order from front to end. The iterator
+     * walks a copy taken under the lock, so it never blocks producers or
+     * consumers and never sees a half-updated deque.
+     *
+     * @return an iterator over a snapshot of the items in this deque
+     */
+    public Iterator<Item> iterator() {
+        lock.lock();
+        try {
+            @SuppressWarnings("unchecked")
+            Item[] snapshot = (Item[]) new Object[N];
+            for (int i = 0, j = first; i < N; i++, j = inc(j))
+                snapshot[i] = items[j];
+            return new SnapshotIterator(snapshot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // private class for iterate over a copy of the items
+    private class SnapshotIterator implements Iterator<Item> {
+        private final Item[] snapshot;
+        private int          index;
+
+        public SnapshotIterator(Item[] snapshot) {
+            this.snapshot = snapshot;
+            this.index    = 0;
+        }
+
+        public boolean hasNext() {
+            return index < snapshot.length;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public Item next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return snapshot[index++];
+        }
+    }
+}
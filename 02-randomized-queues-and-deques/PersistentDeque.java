@@ -0,0 +1,349 @@
+/******************************************************************************
+ *  Compilation:  javac-algs4 PersistentDeque.java
+ *  Execution:    java-algs4 PersistentDeque
+ *  Dependencies:
+ *
+ *  A generic immutable double-ended queue where every update returns a new
+ *  version that shares structure with the old one.
+ *
+ ******************************************************************************/
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ *  This class implements a persistent deque: it supports the same operations
+ *  as Deque, but addFirst, addLast, removeFirst and removeLast never modify the
+ *  deque they are called on. Instead, they return a new deque and leave the old
+ *  one untouched. Since a deque never changes, holding a reference to it is a
+ *  consistent snapshot that costs O(1) to take, and any number of threads can
+ *  iterate over old versions while others keep producing new ones, without
+ *  locks on either side.
+ *
+ *  This implementation is the banker's deque (Okasaki, "Purely Functional Data
+ *  Structures", section 8.4): the front and the reversed rear are kept in lazy
+ *  streams, and whenever one of them grows to more than C times the other plus
+ *  one, the deque is rebalanced by lazily moving half of the longer stream into
+ *  the shorter one. Because the moved cells are only computed when they are
+ *  first needed, and each suspension is computed at most once and then shared
+ *  by every version that refers to it, the cost of a rebalance is paid for by
+ *  the operations that lead up to it, even if old versions are reused.
+ *
+ *  The size, is-empty, peek, add and remove operations all take constant
+ *  amortized time. Suspensions are memoized with a benign race: two threads
+ *  may compute the same cell concurrently, but both compute the same value.
+ *
+ *  PersistentDeque uses the convention that values cannot be null; when trying
+ *  to add a null item, it throws a NullPointerException.
+ *
+ *  @param <Item> the generic type of an item in this deque
+*/
+
+public final class PersistentDeque<Item> implements Iterable<Item> {
+    // balance factor: neither stream may be longer than C times the other + 1
+    private static final int C = 3;
+
+    private static final PersistentDeque<?> EMPTY =
+        new PersistentDeque<>(0, Stream.empty(), 0, Stream.empty());
+
+    private final int          lenF;    // number of items in the front
+    private final Stream<Item> front;   // items from the front, in order
+    private final int          lenR;    // number of items in the rear
+    private final Stream<Item> rear;    // items from the end, in reverse order
+
+    private PersistentDeque(int lenF, Stream<Item> front,
+                            int lenR, Stream<Item> rear) {
+        this.lenF  = lenF;
+        this.front = front;
+        this.lenR  = lenR;
+        this.rear  = rear;
+    }
+
+    /**
+    * Return the empty deque.
+    *
+    * @return a deque with no items
+    */
+    @SuppressWarnings("unchecked")
+    public static <Item> PersistentDeque<Item> empty() {
+        return (PersistentDeque<Item>) EMPTY;
+    }
+
+    /**
+    * Number of items on this deque.
+    *
+    * @return number of items N on this deque
+    */
+    public int size() {
+        return lenF + lenR;
+    }
+
+    /**
+    * Check if this deque is empty.
+    *
+    * @return true if this deque is empty. False otherwise
+    */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+    * Return a deque with the item added to the front of this one.
+    *
+    * @param the item to be added
+    * @return the new version of this deque
+    * @throws NullPointerException if the item is null
+    */
+    public PersistentDeque<Item> addFirst(Item item) {
+        checkItem(item);
+        return balance(lenF + 1, Stream.cons(item, front), lenR, rear);
+    }
+
+    /**
+    * Return a deque with the item added to the end of this one.
+    *
+    * @param the item to be added
+    * @return the new version of this deque
+    * @throws NullPointerException if the item is null
+    */
+    public PersistentDeque<Item> addLast(Item item) {
+        checkItem(item);
+        return balance(lenF, front, lenR + 1, Stream.cons(item, rear));
+    }
+
+    /**
+    * Return (but don't remove) the item at the front of this deque.
+    *
+    * @return the first item of the deque
+    * @throws NoSuchElementException if this deque is empty
+    */
+    public Item peekFirst() {
+        checkEmptyDeque();
+        // by the balance invariant, an empty front means a one-item rear
+        if (lenF == 0)
+            return rear.force().item;
+        return front.force().item;
+    }
+
+    /**
+    * Return (but don't remove) the item at the end of this deque.
+    *
+    * @return the last item of the deque
+    * @throws NoSuchElementException if this deque is empty
+    */
+    public Item peekLast() {
+        checkEmptyDeque();
+        if (lenR == 0)
+            return front.force().item;
+        return rear.force().item;
+    }
+
+    /**
+    * Return a deque without the item at the front of this one.
+    *
+    * @return the new version of this deque
+    * @throws NoSuchElementException if this deque is empty
+    */
+    public PersistentDeque<Item> removeFirst() {
+        checkEmptyDeque();
+        if (lenF == 0)
+            return empty();
+        return balance(lenF - 1, front.force().next, lenR, rear);
+    }
+
+    /**
+    * Return a deque without the item at the end of this one.
+    *
+    * @return the new version of this deque
+    * @throws NoSuchElementException if this deque is empty
+    */
+    public PersistentDeque<Item> removeLast() {
+        checkEmptyDeque();
+        if (lenR == 0)
+            return empty();
+        return balance(lenF, front, lenR - 1, rear.force().next);
+    }
+
+    // check for avoid adding null items
+    private void checkItem(Item item) {
+        if (item == null)
+            throw new NullPointerException("Adding null item.");
+    }
+
+    // check if this deque is empty
+    private void checkEmptyDeque() {
+        if (isEmpty())
+            throw new NoSuchElementException("Empty deque.");
+    }
+
+    // build a deque from its parts, moving half of the longer stream to the
+    // shorter one if the balance invariant no longer holds
+    private static <Item> PersistentDeque<Item> balance(int lenF, Stream<Item> f,
+                                                        int lenR, Stream<Item> r) {
+        int n = lenF + lenR;
+        if (lenF > C * lenR + 1) {
+            int i = n / 2;
+            return new PersistentDeque<>(i, Stream.take(i, f), n - i,
+                Stream.append(r, Stream.reverse(Stream.drop(i, f))));
+        }
+        if (lenR > C * lenF + 1) {
+            int j = n / 2;
+            return new PersistentDeque<>(n - j,
+                Stream.append(f, Stream.reverse(Stream.drop(j, r))),
+                j, Stream.take(j, r));
+        }
+        return new PersistentDeque<>(lenF, f, lenR, r);
+    }
+
+    /**
+     * Returns all items on this deque as an Iterable in order from front to
+     * end. The iterator walks this version only, so it is unaffected by any
+     * later add or remove.
+     *
+     * @return all items in this deque as an Iterable
+     */
+    public Iterator<Item> iterator() {
+        return new PersistentDequeIterator();
+    }
+
+    // private class for iterate over the front stream, then the rear reversed
+    private class PersistentDequeIterator implements Iterator<Item> {
+        private Cell<Item> current = front.force();
+        private int        inFront = lenF;
+        private Item[]     tail;            // rear items, filled when reached
+        private int        index;
+
+        public boolean hasNext() {
+            return inFront > 0 || index < lenR;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        public Item next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            if (inFront > 0) {
+                Item item = current.item;
+                if (--inFront > 0)
+                    current = current.next.force();
+                return item;
+            }
+            if (tail == null) {
+                tail = (Item[]) new Object[lenR];
+                Cell<Item> c = rear.force();
+                for (int i = lenR - 1; i >= 0; i--) {
+                    tail[i] = c.item;
+                    if (i > 0)
+                        c = c.next.force();
+                }
+            }
+            return tail[index++];
+        }
+    }
+
+    // an evaluated stream cell; NIL marks the end of a stream
+    private static final class Cell<T> {
+        private static final Cell<?> NIL = new Cell<>(null, null);
+
+        private final T         item;
+        private final Stream<T> next;
+
+        public Cell(T item, Stream<T> next) {
+            this.item = item;
+            this.next = next;
+        }
+    }
+
+    // a delayed computation of a stream cell
+    private abstract static class Thunk<T> {
+        abstract Cell<T> run();
+    }
+
+    // a lazy list: holds a thunk until it is first forced, then its cell; the
+    // thunk is dropped once forced so it does not pin older versions in memory
+    private static final class Stream<T> {
+        private static final Stream<?> EMPTY = new Stream<>(Cell.NIL);
+
+        private volatile Object state;      // a Thunk<T> or a Cell<T>
+
+        private Stream(Object state) {
+            this.state = state;
+        }
+
+        @SuppressWarnings("unchecked")
+        Cell<T> force() {
+            Object s = state;
+            if (s instanceof Cell)
+                return (Cell<T>) s;
+            Cell<T> c = ((Thunk<T>) s).run();
+            state = c;
+            return c;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T> Stream<T> empty() {
+            return (Stream<T>) EMPTY;
+        }
+
+        static <T> Stream<T> cons(T item, Stream<T> s) {
+            return new Stream<>(new Cell<>(item, s));
+        }
+
+        // the first n items of s, computed one cell at a time
+        static <T> Stream<T> take(final int n, final Stream<T> s) {
+            if (n == 0)
+                return empty();
+            return new Stream<>(new Thunk<T>() {
+                Cell<T> run() {
+                    Cell<T> c = s.force();
+                    if (c == Cell.NIL)
+                        return c;
+                    return new Cell<>(c.item, take(n - 1, c.next));
+                }
+            });
+        }
+
+        // s without its first n items, computed all at once when forced
+        static <T> Stream<T> drop(final int n, final Stream<T> s) {
+            return new Stream<>(new Thunk<T>() {
+                Cell<T> run() {
+                    Stream<T> t = s;
+                    for (int i = 0; i < n; i++) {
+                        Cell<T> c = t.force();
+                        if (c == Cell.NIL)
+                            return c;
+                        t = c.next;
+                    }
+                    return t.force();
+                }
+            });
+        }
+
+        // the items of s followed by those of t, computed one cell at a time
+        static <T> Stream<T> append(final Stream<T> s, final Stream<T> t) {
+            return new Stream<>(new Thunk<T>() {
+                Cell<T> run() {
+                    Cell<T> c = s.force();
+                    if (c == Cell.NIL)
+                        return t.force();
+                    return new Cell<>(c.item, append(c.next, t));
+                }
+            });
+        }
+
+        // the items of s in reverse order, computed all at once when forced
+        static <T> Stream<T> reverse(final Stream<T> s) {
+            return new Stream<>(new Thunk<T>() {
+                Cell<T> run() {
+                    Stream<T> r = empty();
+                    for (Cell<T> c = s.force(); c != Cell.NIL; c = c.next.force())
+                        r = cons(c.item, r);
+                    return r.force();
+                }
+            });
+        }
+    }
+}
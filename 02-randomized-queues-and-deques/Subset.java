@@ -1,23 +1,26 @@
 /******************************************************************************
  *  Compilation:  javac-algs4 Subset.java
  *  Execution:    java-algs4 Subset k < set.txt
- *  Dependencies: StdIn.java StdOut.java
+ *  Dependencies: RandomizedQueue.java TokenReader.java StdOut.java
  *
  *  Client that takes k items from a set chosen uniformly at random
  *
  ******************************************************************************/
 
 
-import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
 
 
 /**
  *  This class represent a client that takes a command-line integer k; reads
- *  in a sequence of N strings from standard input using StdIn.readString(); and
+ *  in a sequence of N strings from standard input using TokenReader; and
  *  prints out exactly k of them, uniformly at random. Each item from the
  *  sequence can be printed out at most once. You may assume that 0 ≤ k ≤ n,
  *  where N is the number of string on standard input.
+ *
+ *  Input is read through TokenReader instead of StdIn.readString(), which goes
+ *  through Scanner and a regular expression per token; on large inputs that
+ *  parsing dominated the running time.
 */
 
 public class Subset {
@@ -26,8 +29,9 @@ public class Subset {
         int k = Integer.parseInt(args[0]);
 
         // add items to the randomized queue
-        while (!StdIn.isEmpty()) {
-            String item = StdIn.readString();
+        TokenReader in = new TokenReader();
+        while (!in.isEmpty()) {
+            String item = in.readString();
             rq.enqueue(item);
         }
 
@@ -0,0 +1,140 @@
+/******************************************************************************
+ *  Compilation:  javac-algs4 BinarySegmentWriter.java
+ *  Execution:    java-algs4 BinarySegmentWriter input.txt output.bin
+ *  Dependencies: SegmentSink.java FastCollinearPoints.java PointFile.java
+ *                TokenReader.java StdOut.java
+ *
+ *  Write line segments to a binary stream as pairs of endpoint indices.
+ *
+ * Usage:
+ *  % java BinarySegmentWriter input8.txt segments.bin
+ *  2 segments
+ *
+ ******************************************************************************/
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import edu.princeton.cs.algs4.StdOut;
+
+
+/**
+ *  BinarySegmentWriter is a SegmentSink that writes every segment it receives
+ *  to an output stream, as two 32-bit big-endian ints: the input indices of its
+ *  endpoints. The stream is buffered, so the engine keeps running while the
+ *  operating system writes the previous blocks out, and nothing but the buffer
+ *  is kept in memory.
+ *
+ *  The stream has no header; the number of segments is the length of the
+ *  stream divided by 8, and is also returned by count(). The writer must be
+ *  closed, or flushed, once the engine is done.
+ *
+ *  BinarySegmentWriter throws an IllegalArgumentException if the file cannot
+ *  be opened, and an UncheckedIOException if writing fails, since
+ *  SegmentSink.segment() cannot throw a checked exception.
+ */
+
+public class BinarySegmentWriter implements SegmentSink, Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final DataOutputStream out;
+    private long count;     // number of segments written
+
+    /**
+     * Initializes a writer to the given output stream.
+     *
+     * @param  out the output stream
+     * @throws NullPointerException if the stream is null
+     */
+    public BinarySegmentWriter(OutputStream out) {
+        if (out == null)
+            throw new NullPointerException("null argument");
+        this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+    }
+
+    /**
+     * Initializes a writer to the given file, replacing its contents.
+     *
+     * @param  filename the name of the file
+     * @throws IllegalArgumentException if the file cannot be opened
+     */
+    public BinarySegmentWriter(String filename) {
+        this(open(filename));
+    }
+
+    private static OutputStream open(String filename) {
+        try {
+            return new FileOutputStream(filename);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("could not open " + filename, e);
+        }
+    }
+
+    /**
+     * Writes the segment between the p-th and the q-th input points.
+     *
+     * @param p the index in the input of one endpoint
+     * @param q the index in the input of the other endpoint
+     */
+    public void segment(int p, int q) {
+        try {
+            out.writeInt(p);
+            out.writeInt(q);
+            count++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the number of segments written.
+     *
+     * @return the number of segments
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Writes out the segments still in the buffer.
+     */
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes out the segments still in the buffer and closes the stream.
+     */
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Unit tests the BinarySegmentWriter data type.
+     */
+    public static void main(String[] args) {
+        // read the points from a text or a binary point file
+        PointFile file = PointFile.load(args[0]);
+        int[]     xs   = file.xs();
+        int[]     ys   = file.ys();
+
+        // stream the segments to the file
+        BinarySegmentWriter writer = new BinarySegmentWriter(args[1]);
+        FastCollinearPoints.findSegments(xs, ys, writer);
+        writer.close();
+        StdOut.println(writer.count() + " segments");
+    }
+}
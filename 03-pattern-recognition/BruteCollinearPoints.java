@@ -1,7 +1,9 @@
 /******************************************************************************
  *  Compilation:  javac-algs4 BruteCollinearPoints.java
  *  Execution:    java-algs4 BruteCollinearPoints < input.txt
- *  Dependencies: In.java StdDraw.java StdOut.java
+ *  Dependencies: Point.java LineSegment.java CollinearInput.java
+ *                PointCoordinates.java SegmentSink.java PointFile.java
+ *                TokenReader.java StdDraw.java StdOut.java
  *
  *  Find every (maximal) line segment that connects a subset of 4 or more points
  *  using brute force.
@@ -21,6 +23,9 @@
  *                           14000  15000
  *                            6000   7000
  *
+ *  The input file can also be a binary point file (see PointFile), which is
+ *  detected automatically and read much faster for large inputs.
+ *
  * Usage:
  *  % java BruteCollinearPoints input6.txt
  *  (14000, 10000) -> (32000, 10000)
@@ -34,8 +39,9 @@
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdDraw;
 import edu.princeton.cs.algs4.StdOut;
 
@@ -52,10 +58,30 @@ import edu.princeton.cs.algs4.StdOut;
  *  then BruteCollinearPoints include either the line segment p -> s or s -> p
  *  (but not both) and doesn't include subsegments such as p -> r or q -> r.
  *
+ *  The points can also be given directly as two arrays of coordinates. Either
+ *  way, CollinearInput validates them and sorts their coordinates into two int
+ *  arrays, in time proportional to N log N, and collinearity is tested on those
+ *  with exact cross products instead of comparing double slopes, so the inner
+ *  loops never touch a Point.
+ *
  *  BruteCollinearPoints throws a NullPointerException either the argument to
  *  the constructor is null or if any point in the array is null. Throws an
  *  IllegalArgumentException if the argument to the constructor contains a
- *  repeated point.
+ *  repeated point, if the coordinate arrays have different lengths, or if a
+ *  coordinate is not between 0 and 32,767.
+ *
+ *  The static method findSegments() passes the segments to a SegmentSink as
+ *  pairs of input indices as they are found, instead of keeping them.
+ *
+ *  The loops are pruned as soon as the points can no longer be collinear: if
+ *  the first 3 points are not collinear, no fourth point is tried. In parallel
+ *  mode, the values of the outer index are split across the workers of the
+ *  common fork-join pool; each worker records the segments found for each
+ *  value of the outer index on its own, and they are reported in the order of
+ *  the outer index once every worker is done, so the output is the same as in
+ *  sequential mode. This makes BruteCollinearPoints a practical oracle to test
+ *  the faster engines against on a few thousand points (see
+ *  CollinearCrossCheck).
  *
  *  The order of growth of the running time is N^4 in the worst case and uses
  *  space proportional to N plus the number of line segments returned.
@@ -70,66 +96,230 @@ public class BruteCollinearPoints {
      *
      * @param  points given for pattern recognition
      * @throws NullPointerException if the given argument is null
-     * @throws IllegalArgumentException if repeated points are given
+     * @throws IllegalArgumentException if repeated points are given or a
+     *         coordinate is not between 0 and 32,767
      */
     public BruteCollinearPoints(Point[] points) {
-        // check for null argument and duplicate points
-        checkNullArgument(points);
-        checkDuplicatePoints(points);
+        this(points, false);
+    }
+
+    /**
+     * Constructor that finds all line segments containing 4 collinear points,
+     * optionally using every core of the machine.
+     *
+     * @param  points given for pattern recognition
+     * @param  parallel true to split the outer loop across fork-join workers
+     * @throws NullPointerException if the given argument is null
+     * @throws IllegalArgumentException if repeated points are given or a
+     *         coordinate is not between 0 and 32,767
+     */
+    public BruteCollinearPoints(Point[] points, boolean parallel) {
+        this(CollinearInput.of(points), parallel);
+    }
+
+    /**
+     * Constructor that finds all line segments containing 4 collinear points,
+     * given as two arrays of coordinates: the i-th point is (xs[i], ys[i]).
+     *
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @throws NullPointerException if either argument is null
+     * @throws IllegalArgumentException if repeated points are given, if the
+     *         arrays have different lengths or if a coordinate is not
+     *         between 0 and 32,767
+     */
+    public BruteCollinearPoints(int[] xs, int[] ys) {
+        this(xs, ys, false);
+    }
+
+    /**
+     * Constructor that finds all line segments containing 4 collinear points,
+     * given as two arrays of coordinates, optionally using every core of the
+     * machine.
+     *
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @param  parallel true to split the outer loop across fork-join workers
+     * @throws NullPointerException if either argument is null
+     * @throws IllegalArgumentException if repeated points are given, if the
+     *         arrays have different lengths or if a coordinate is not
+     *         between 0 and 32,767
+     */
+    public BruteCollinearPoints(int[] xs, int[] ys, boolean parallel) {
+        this(CollinearInput.of(xs, ys), parallel);
+    }
 
+    // find the segments of the validated input, whose points are already
+    // sorted, which avoids finding the same segment twice
+    private BruteCollinearPoints(CollinearInput input, boolean parallel) {
         ArrayList<LineSegment> arLS = new ArrayList<LineSegment>();
-        Point[] p   = points.clone();   // we need to sort the points
-        int     len = p.length;
-        double  sl1;
-        double  sl2;
-        double  sl3;
+        find(input.xs(), input.ys(), parallel,
+             (i, l) -> arLS.add(new LineSegment(input.point(i), input.point(l))));
+        segments = arLS.toArray(new LineSegment[arLS.size()]);
+    }
 
-        // sorting points avoids calculate the slope twice
-        Arrays.sort(p);
+    /**
+     * Finds all line segments containing 4 collinear points and passes each
+     * one to the sink as soon as it is found, as the indices of its endpoints
+     * in the given array, without keeping any of them.
+     *
+     * @param  points given for pattern recognition
+     * @param  sink the consumer of the segments
+     * @throws NullPointerException if either argument is null
+     * @throws IllegalArgumentException if repeated points are given or a
+     *         coordinate is not between 0 and 32,767
+     */
+    public static void findSegments(Point[] points, SegmentSink sink) {
+        if (sink == null)
+            throw new NullPointerException("null argument");
+        findSegments(CollinearInput.of(points), false, sink);
+    }
 
+    /**
+     * Finds all line segments containing 4 collinear points, given as two
+     * arrays of coordinates, and passes each one to the sink as soon as it is
+     * found, as the indices of its endpoints in the arrays.
+     *
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @param  sink the consumer of the segments
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if repeated points are given, if the
+     *         arrays have different lengths or if a coordinate is not
+     *         between 0 and 32,767
+     */
+    public static void findSegments(int[] xs, int[] ys, SegmentSink sink) {
+        findSegments(xs, ys, false, sink);
+    }
 
-        for (int i = 0; i < len - 3; i++) {
-            for (int j = i + 1; j < len - 2; j++) {
-                sl1 = p[i].slopeTo(p[j]);
+    /**
+     * Finds all line segments containing 4 collinear points, given as two
+     * arrays of coordinates, optionally using every core of the machine, and
+     * passes them to the sink as the indices of their endpoints in the arrays.
+     * The sink is only called from the calling thread; in parallel mode, once
+     * all the segments have been found.
+     *
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @param  parallel true to split the outer loop across fork-join workers
+     * @param  sink the consumer of the segments
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if repeated points are given, if the
+     *         arrays have different lengths or if a coordinate is not
+     *         between 0 and 32,767
+     */
+    public static void findSegments(int[] xs, int[] ys, boolean parallel, SegmentSink sink) {
+        if (sink == null)
+            throw new NullPointerException("null argument");
+        findSegments(CollinearInput.of(xs, ys), parallel, sink);
+    }
+
+    private static void findSegments(CollinearInput input, boolean parallel, SegmentSink sink) {
+        find(input.xs(), input.ys(), parallel,
+             (i, l) -> sink.segment(input.inputIndex(i), input.inputIndex(l)));
+    }
+
+    // report every 4 collinear points i < j < k < l, as the pair (i, l) of
+    // indices in natural order, in the order of i
+    private static void find(int[] xs, int[] ys, boolean parallel, SegmentSink out) {
+        int n = xs.length;
+        if (!parallel) {
+            find(xs, ys, 0, n, out);
+            return;
+        }
+
+        // ends[i]: the last points of the segments that start at i
+        int[][] ends = new int[n][];
+        int threshold = Math.max(1, n / (16 * ForkJoinPool.getCommonPoolParallelism()));
+        ForkJoinPool.commonPool().invoke(new OuterTask(xs, ys, ends, 0, n, threshold));
+
+        for (int i = 0; i < n; i++) {
+            if (ends[i] == null)
+                continue;
+            for (int l : ends[i])
+                out.segment(i, l);
+        }
+    }
 
+    // report every 4 collinear points i < j < k < l with lo <= i < hi
+    private static void find(int[] xs, int[] ys, int lo, int hi, SegmentSink out) {
+        int len = xs.length;
+        for (int i = lo; i < hi && i < len - 3; i++) {
+            for (int j = i + 1; j < len - 2; j++) {
                 for (int k = j + 1; k < len - 1; k++) {
-                    sl2 = p[j].slopeTo(p[k]);
+                    // no fourth point can make i, j and k collinear
+                    if (!collinear(xs, ys, i, j, k))
+                        continue;
 
                     for (int l = k + 1; l < len; l++) {
-                        sl3 = p[k].slopeTo(p[l]);
-                        // if both slopes are equal, the points are collinear
-                        if ((sl1 == sl2) && (sl2 == sl3))
-                            arLS.add(new LineSegment(p[i], p[l]));
+                        // if both triples are collinear, so are the 4 points
+                        if (collinear(xs, ys, j, k, l))
+                            out.segment(i, l);
                     }
                 }
             }
         }
-
-        segments = arLS.toArray(new LineSegment[arLS.size()]);
     }
 
-    // check for null argument, either vector or points
-    private void checkNullArgument(Point[] points) {
-        if (points == null)
-            throw new NullPointerException("null argument");
-        else {
-            for (int i = 0; i < points.length; i++) {
-                if (points[i] == null)
-                    throw new NullPointerException("null argument");
+    // fork-join task for the values lo..hi-1 of the outer index; the outer
+    // iterations get cheaper as i grows, so the leaves are small and the pool
+    // balances them by work stealing
+    private static class OuterTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[]   xs;
+        private final int[]   ys;
+        private final int[][] ends;
+        private final int     lo;
+        private final int     hi;
+        private final int     threshold;
+
+        public OuterTask(int[] xs, int[] ys, int[][] ends, int lo, int hi, int threshold) {
+            this.xs        = xs;
+            this.ys        = ys;
+            this.ends      = ends;
+            this.lo        = lo;
+            this.hi        = hi;
+            this.threshold = threshold;
+        }
+
+        protected void compute() {
+            if (hi - lo > threshold) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new OuterTask(xs, ys, ends, lo, mid, threshold),
+                          new OuterTask(xs, ys, ends, mid, hi, threshold));
+                return;
+            }
+
+            EndBuffer buffer = new EndBuffer();
+            for (int i = lo; i < hi; i++) {
+                buffer.size = 0;
+                find(xs, ys, i, i + 1, buffer);
+                if (buffer.size > 0)
+                    ends[i] = Arrays.copyOf(buffer.ends, buffer.size);
             }
         }
     }
 
-    // check for duplicate points
-    private void checkDuplicatePoints(Point[] points) {
-        for (int i = 0; i < points.length - 1; i++) {
-            for (int j = i + 1; j < points.length; j++) {
-                if (points[i].compareTo(points[j]) == 0)
-                    throw new IllegalArgumentException("repeated points");
-            }
+    // collects the last points of the segments found for one outer index
+    private static class EndBuffer implements SegmentSink {
+        private int[] ends = new int[4];
+        private int   size;
+
+        public void segment(int i, int l) {
+            if (size == ends.length)
+                ends = Arrays.copyOf(ends, 2 * size);
+            ends[size++] = l;
         }
     }
 
+    // are the points a, b and c collinear? (exact cross product test)
+    private static boolean collinear(int[] xs, int[] ys, int a, int b, int c) {
+        long cross = (long) (xs[b] - xs[a]) * (ys[c] - ys[a])
+                   - (long) (ys[b] - ys[a]) * (xs[c] - xs[a]);
+        return cross == 0;
+    }
+
     /**
      * Returns the number of segments found.
      *
@@ -152,26 +342,22 @@ public class BruteCollinearPoints {
      * Unit tests the BruteCollinearPoints data type.
      */
     public static void main(String[] args) {
-        // read the N points from a file
-        In in = new In(args[0]);
-        int N = in.readInt();
-        Point[] points = new Point[N];
-        for (int i = 0; i < N; i++) {
-            int x = in.readInt();
-            int y = in.readInt();
-            points[i] = new Point(x, y);
-        }
+        // read the points from a text or a binary point file, straight into
+        // arrays of coordinates
+        PointFile file = PointFile.load(args[0]);
+        int[]     xs   = file.xs();
+        int[]     ys   = file.ys();
 
         // draw the points
         StdDraw.show(0);
         StdDraw.setXscale(0, 32768);
         StdDraw.setYscale(0, 32768);
-        for (Point p : points)
-            p.draw();
+        for (int i = 0; i < xs.length; i++)
+            StdDraw.point(xs[i], ys[i]);
         StdDraw.show();
 
         // print and draw the line segments
-        BruteCollinearPoints collinear = new BruteCollinearPoints(points);
+        BruteCollinearPoints collinear = new BruteCollinearPoints(xs, ys);
         for (LineSegment segment : collinear.segments()) {
             StdOut.println(segment);
             segment.draw();
@@ -0,0 +1,275 @@
+/******************************************************************************
+ *  Compilation:  javac-algs4 CollinearCrossCheck.java
+ *  Execution:    java-algs4 CollinearCrossCheck trials maxN [seed]
+ *  Dependencies: BruteCollinearPoints.java FastCollinearPoints.java
+ *                LineKeys.java LongHashSet.java SegmentSink.java Point.java
+ *                LineSegment.java StdRandom.java StdOut.java
+ *
+ *  Differential test of FastCollinearPoints against BruteCollinearPoints on
+ *  random and adversarial sets of points.
+ *
+ * Usage:
+ *  % java CollinearCrossCheck 1000 60 42
+ *  1000 trials passed
+ *
+ ******************************************************************************/
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+
+/**
+ *  CollinearCrossCheck runs FastCollinearPoints and the parallel mode of
+ *  BruteCollinearPoints on the same sets of points and checks that they find
+ *  the same segments. BruteCollinearPoints reports every 4 collinear points, so
+ *  a line with 5 or more points shows up as several overlapping segments; its
+ *  output is normalized by grouping the segments by the exact identity of their
+ *  line (see LineKeys) and keeping the extreme points of each group, which is
+ *  the maximal segment FastCollinearPoints must report exactly once.
+ *
+ *  Every way FastCollinearPoints finds segments is checked: the streaming
+ *  findSegments(), which reports each segment from its smallest point, and
+ *  the constructor, sequential (which removes duplicates by line) and
+ *  parallel (which reports each segment from its smallest point too).
+ *
+ *  The sets of points are generated in turn by:
+ *
+ *      - random points on a coarse grid, which has many collinear subsets;
+ *      - a few random lines, each with many points, plus random noise;
+ *      - a dense square lattice, where lines of every slope cross each other;
+ *      - lines with long directions close to the diagonal, through points near
+ *        the corners, plus points just off them, which defeat comparisons of
+ *        slopes as doubles.
+ *
+ *  The first mismatch is printed with the seed and the points, so it can be
+ *  replayed. The seed is random unless given.
+ */
+
+public class CollinearCrossCheck {
+    private static final int MAX = 32767;
+
+    // the points generated for a trial
+    private final int[]       xs;
+    private final int[]       ys;
+    private final LongHashSet used;
+    private int               n;
+
+    // an empty set of at most count points
+    private CollinearCrossCheck(int count) {
+        xs   = new int[count];
+        ys   = new int[count];
+        used = new LongHashSet(count);
+    }
+
+    /**
+     * Compares FastCollinearPoints with BruteCollinearPoints on one set of
+     * points.
+     *
+     * @param  x the x-coordinates of the points
+     * @param  y the y-coordinates of the points
+     * @return null if both find the same segments, or a description of the
+     *         first difference
+     */
+    public static String compare(int[] x, int[] y) {
+        // maximal segments by line: the smallest and greatest point keys
+        Map<Long, long[]> brute = new HashMap<>();
+        BruteCollinearPoints.findSegments(x, y, true, (p, q) -> {
+            long   line = lineKey(x, y, p, q);
+            long[] ends = brute.get(line);
+            long   a    = pointKey(x, y, p);
+            long   b    = pointKey(x, y, q);
+            if (ends == null)
+                brute.put(line, new long[] { Math.min(a, b), Math.max(a, b) });
+            else {
+                ends[0] = Math.min(ends[0], Math.min(a, b));
+                ends[1] = Math.max(ends[1], Math.max(a, b));
+            }
+        });
+
+        Map<Long, long[]> fast = new HashMap<>();
+        StringBuilder duplicate = new StringBuilder();
+        FastCollinearPoints.findSegments(x, y, (p, q) -> {
+            long a = pointKey(x, y, p);
+            long b = pointKey(x, y, q);
+            if (fast.put(lineKey(x, y, p, q), new long[] { Math.min(a, b), Math.max(a, b) }) != null)
+                duplicate.append("fast reports " + segment(a, b) + " twice\n");
+        });
+        if (duplicate.length() > 0)
+            return duplicate.toString();
+        String difference = compareConstructors(x, y, brute);
+        if (difference != null)
+            return difference;
+
+        for (Map.Entry<Long, long[]> e : brute.entrySet()) {
+            long[] ends  = e.getValue();
+            long[] other = fast.get(e.getKey());
+            if (other == null)
+                return "fast misses " + segment(ends[0], ends[1]);
+            if (other[0] != ends[0] || other[1] != ends[1])
+                return "fast reports " + segment(other[0], other[1])
+                     + " instead of " + segment(ends[0], ends[1]);
+        }
+        for (Map.Entry<Long, long[]> e : fast.entrySet()) {
+            if (!brute.containsKey(e.getKey()))
+                return "fast reports extra " + segment(e.getValue()[0], e.getValue()[1]);
+        }
+        return null;
+    }
+
+    // compare the segments of both modes of the FastCollinearPoints
+    // constructor with the maximal segments by line; a segment goes from its
+    // smallest point to its greatest. The segments are compared by their
+    // string representations, which only depend on the coordinates
+    private static String compareConstructors(int[] x, int[] y, Map<Long, long[]> brute) {
+        Point[] points = new Point[x.length];
+        for (int i = 0; i < x.length; i++)
+            points[i] = new Point(x[i], y[i]);
+
+        String[] expected = new String[brute.size()];
+        int k = 0;
+        for (long[] ends : brute.values())
+            expected[k++] = new LineSegment(point(ends[0]), point(ends[1])).toString();
+        Arrays.sort(expected);
+
+        for (boolean parallel : new boolean[] { false, true }) {
+            LineSegment[] segments = new FastCollinearPoints(points, parallel).segments();
+            String[] found = new String[segments.length];
+            for (int i = 0; i < segments.length; i++)
+                found[i] = segments[i].toString();
+            Arrays.sort(found);
+
+            String mode = parallel ? "parallel constructor" : "constructor";
+            for (int i = 0; i < Math.max(expected.length, found.length); i++) {
+                if (i == found.length || (i < expected.length && expected[i].compareTo(found[i]) < 0))
+                    return mode + " misses " + expected[i];
+                if (i == expected.length || !expected[i].equals(found[i]))
+                    return mode + " reports extra " + found[i];
+            }
+        }
+        return null;
+    }
+
+    // the point of a point key
+    private static Point point(long key) {
+        return new Point((int) (key & MAX), (int) (key >> 15));
+    }
+
+    // the exact line through the points p and q
+    private static long lineKey(int[] x, int[] y, int p, int q) {
+        return LineKeys.line(x[p], y[p], x[q] - x[p], y[q] - y[p]);
+    }
+
+    // the point p as a key that sorts in natural order, by y and then by x
+    private static long pointKey(int[] x, int[] y, int p) {
+        return ((long) y[p] << 15) | x[p];
+    }
+
+    private static String segment(long a, long b) {
+        return "(" + (a & MAX) + ", " + (a >> 15) + ") -> (" + (b & MAX) + ", " + (b >> 15) + ")";
+    }
+
+    // add the point (x, y) unless it is out of range, already there, or the
+    // set is full
+    private void add(int x, int y) {
+        if (n == xs.length || x < 0 || x > MAX || y < 0 || y > MAX)
+            return;
+        if (!used.add(((long) y << 15) | x))
+            return;
+        xs[n] = x;
+        ys[n] = y;
+        n++;
+    }
+
+    // random points on a range-by-range grid that spans the coordinates
+    private void grid(int count) {
+        int range = StdRandom.uniform(2, 17);
+        int step  = MAX / (range - 1);
+        int tries = 0;
+        while (n < count && tries++ < 4 * count)
+            add(StdRandom.uniform(range) * step, StdRandom.uniform(range) * step);
+    }
+
+    // a few lines with many points each, then noise
+    private void lines(int count) {
+        int lines = StdRandom.uniform(1, 5);
+        for (int l = 0; l < lines; l++) {
+            int x  = StdRandom.uniform(MAX + 1);
+            int y  = StdRandom.uniform(MAX + 1);
+            int dx = StdRandom.uniform(-6, 7) * StdRandom.uniform(1, 500);
+            int dy = StdRandom.uniform(-6, 7) * StdRandom.uniform(1, 500);
+            if (dx == 0 && dy == 0)
+                dx = 1;
+            // walk back to the edge, then add points along the whole line
+            while (x - dx >= 0 && x - dx <= MAX && y - dy >= 0 && y - dy <= MAX) {
+                x -= dx;
+                y -= dy;
+            }
+            for (int i = 0; i < count / (lines + 1); i++)
+                add(x + i * dx, y + i * dy);
+        }
+        while (n < count)
+            add(StdRandom.uniform(MAX + 1), StdRandom.uniform(MAX + 1));
+    }
+
+    // a dense square lattice
+    private void lattice(int count) {
+        int side = (int) Math.ceil(Math.sqrt(count));
+        int step = StdRandom.uniform(1, MAX / Math.max(1, side - 1) + 1);
+        for (int i = 0; i < side; i++)
+            for (int j = 0; j < side; j++)
+                add(i * step, j * step);
+    }
+
+    // lines with long, nearly diagonal directions through the corners, and
+    // points one unit away from them
+    private void nearMisses(int count) {
+        int k  = StdRandom.uniform(4, 8);
+        int dx = (MAX / (k - 1)) - StdRandom.uniform(3);
+        int dy = dx - StdRandom.uniform(1, 4);
+        for (int i = 0; i < k; i++) {
+            add(i * dx, i * dy);
+            add(MAX - i * dx, i * dy);
+            add(i * dx, i * dy + 1);
+            add(MAX - i * dx, MAX - i * dy);
+        }
+        while (n < count)
+            add(StdRandom.uniform(MAX + 1), StdRandom.uniform(MAX + 1));
+    }
+
+    /**
+     * Runs the differential test.
+     */
+    public static void main(String[] args) {
+        int  trials = Integer.parseInt(args[0]);
+        int  maxN   = Integer.parseInt(args[1]);
+        long seed   = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        StdRandom.setSeed(seed);
+
+        for (int t = 0; t < trials; t++) {
+            int count = StdRandom.uniform(4, maxN + 1);
+            CollinearCrossCheck trial = new CollinearCrossCheck(count);
+            switch (t % 4) {
+                case 0:  trial.grid(count);       break;
+                case 1:  trial.lines(count);      break;
+                case 2:  trial.lattice(count);    break;
+                default: trial.nearMisses(count); break;
+            }
+
+            int[] x = Arrays.copyOf(trial.xs, trial.n);
+            int[] y = Arrays.copyOf(trial.ys, trial.n);
+            String difference = compare(x, y);
+            if (difference != null) {
+                StdOut.println("trial " + t + " with seed " + seed + ": " + difference);
+                StdOut.println(x.length);
+                for (int i = 0; i < x.length; i++)
+                    StdOut.println(x[i] + " " + y[i]);
+                return;
+            }
+        }
+        StdOut.println(trials + " trials passed");
+    }
+}
@@ -0,0 +1,151 @@
+/******************************************************************************
+ *  Compilation:  javac-algs4 CollinearDetector.java
+ *  Execution:    java-algs4 CollinearDetector input.txt frames
+ *  Dependencies: CollinearInput.java OriginSweep.java SegmentSink.java
+ *                PointFile.java TokenReader.java StdOut.java
+ *
+ *  A reusable collinear points engine that runs on many small sets of points
+ *  in a row without allocating.
+ *
+ * Usage:
+ *  % java CollinearDetector input8.txt 100000
+ *  2 segments per frame
+ *  100000 frames in 1.234 seconds
+ *
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+
+/**
+ *  CollinearDetector finds the same segments as FastCollinearPoints, but it is
+ *  meant to be created once and called on many sets of points, such as the
+ *  frames of a video. A new FastCollinearPoints allocates its validated copy of
+ *  the points, its sweep arrays, its set of found lines and its list of
+ *  segments every time; a CollinearDetector keeps all of its scratch arrays
+ *  between calls instead, and only grows them when a set of points is larger
+ *  than any before it. Once they have reached their working size, detect()
+ *  allocates nothing.
+ *
+ *  The segments are passed to a SegmentSink as pairs of indices in the given
+ *  arrays, and each maximal segment is reported once by its smallest point, as
+ *  in the streaming mode of FastCollinearPoints, so no set of found lines has
+ *  to be reset between calls.
+ *
+ *  A CollinearDetector is not thread-safe; use one per thread. It throws a
+ *  NullPointerException if an argument is null and an IllegalArgumentException
+ *  if the input contains a repeated point or a coordinate that is not between
+ *  0 and 32,767.
+ *
+ *  The order of growth of the running time of detect() is N^2 log N in the
+ *  worst case, and the detector uses space proportional to the largest N seen.
+ */
+
+public final class CollinearDetector {
+    private long[] keys     = new long[16];  // scratch space for validation
+    private int[]  sortedXs = new int[16];   // x-coordinates, in natural order
+    private int[]  sortedYs = new int[16];   // y-coordinates, in natural order
+    private int[]  order    = new int[16];   // order[i]: input index of point i
+    private final OriginSweep sweep = new OriginSweep(16);
+
+    // maps the pairs found by the sweep back to input indices; kept in a
+    // field so that detect() does not allocate a new sink for each call
+    private final Forwarder forwarder = new Forwarder();
+    private int             found;          // segments found by this call
+
+    /**
+     * Finds all line segments containing 4 or more collinear points among
+     * the points (xs[i], ys[i]) and passes them to the sink, as the indices of
+     * their endpoints in the arrays.
+     *
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @param  sink the consumer of the segments
+     * @return the number of segments found
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if repeated points are given, if the
+     *         arrays have different lengths or if a coordinate is not
+     *         between 0 and 32,767
+     */
+    public int detect(int[] xs, int[] ys, SegmentSink sink) {
+        if (xs == null || ys == null)
+            throw new NullPointerException("null argument");
+        if (xs.length != ys.length)
+            throw new IllegalArgumentException("xs and ys differ in length");
+        return detect(xs, ys, xs.length, sink);
+    }
+
+    /**
+     * Finds all line segments containing 4 or more collinear points among
+     * the first n points (xs[i], ys[i]) and passes them to the sink, as the
+     * indices of their endpoints in the arrays. The arrays may be longer than
+     * n, so a caller can reuse them for frames of different sizes.
+     *
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @param  n the number of points
+     * @param  sink the consumer of the segments
+     * @return the number of segments found
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if repeated points are given, if a
+     *         coordinate is not between 0 and 32,767, or if n is negative or
+     *         greater than the length of an array
+     */
+    public int detect(int[] xs, int[] ys, int n, SegmentSink sink) {
+        if (xs == null || ys == null || sink == null)
+            throw new NullPointerException("null argument");
+        if (n < 0 || n > xs.length || n > ys.length)
+            throw new IllegalArgumentException("n out of range");
+
+        // grow the scratch arrays, never shrink them
+        if (keys.length < n) {
+            int m = Math.max(n, 2 * keys.length);
+            keys     = new long[m];
+            sortedXs = new int[m];
+            sortedYs = new int[m];
+            order    = new int[m];
+        }
+        CollinearInput.sort(xs, ys, n, keys, sortedXs, sortedYs, order);
+
+        forwarder.sink = sink;
+        found = 0;
+        try {
+            for (int p = 0; p < n; p++)
+                sweep.sortOwned(sortedXs, sortedYs, n, p, forwarder);
+        } finally {
+            forwarder.sink = null;
+        }
+        return found;
+    }
+
+    // passes the pairs of natural indices on as pairs of input indices
+    private final class Forwarder implements SegmentSink {
+        private SegmentSink sink;
+
+        public void segment(int p, int q) {
+            found++;
+            sink.segment(order[p], order[q]);
+        }
+    }
+
+    /**
+     * Unit tests the CollinearDetector data type.
+     */
+    public static void main(String[] args) {
+        // read the points from a text or a binary point file
+        PointFile file = PointFile.load(args[0]);
+        int frames = Integer.parseInt(args[1]);
+        int[]     xs   = file.xs();
+        int[]     ys   = file.ys();
+
+        // run the same frame over and over with one detector
+        CollinearDetector detector = new CollinearDetector();
+        SegmentSink ignore = (p, q) -> { };
+        StdOut.println(detector.detect(xs, ys, ignore) + " segments per frame");
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++)
+            detector.detect(xs, ys, ignore);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        StdOut.printf("%d frames in %.3f seconds\n", frames, seconds);
+    }
+}
@@ -0,0 +1,183 @@
+/******************************************************************************
+ *  Compilation:  javac CollinearInput.java
+ *  Execution:    none
+ *  Dependencies: Point.java PointCoordinates.java
+ *
+ *  Validate the input of the collinear engines and sort it in natural order.
+ *
+ ******************************************************************************/
+
+import java.util.Arrays;
+
+
+/**
+ *  CollinearInput is the validation and preprocessing stage shared by the
+ *  collinear engines. It checks the input for null, reads the coordinates of
+ *  the points and sorts them in natural order (by y, then by x) once. Repeated
+ *  points end up next to each other, so they are found with a linear scan
+ *  instead of comparing every pair of points.
+ *
+ *  The engines then work on the coordinates in natural order, so comparing two
+ *  points is comparing their indices, and none of them sorts the points again.
+ *  The permutation back to the input order is kept, and the given Point
+ *  objects are reused for the endpoints of the segments when there are any.
+ *
+ *  Each point is packed with its input index into a long, so the sort is a
+ *  primitive Arrays.sort: coordinates take 15 bits each, which is why they
+ *  must be between 0 and 32,767, as the assignment guarantees.
+ *
+ *  CollinearInput throws a NullPointerException if the argument is null or if
+ *  any point in the array is null, and an IllegalArgumentException if the input
+ *  contains a repeated point, if the coordinate arrays have different lengths,
+ *  or if a coordinate is out of range.
+ *
+ *  Validation takes time proportional to N log N.
+ */
+
+final class CollinearInput {
+    static final int MAX_COORDINATE = 32767;
+
+    private final Point[] points;   // the given points, or null
+    private final int[]   xs;       // x-coordinates, in natural order
+    private final int[]   ys;       // y-coordinates, in natural order
+    private final int[]   order;    // order[i]: input index of the i-th point
+
+    private CollinearInput(Point[] points, int[] x, int[] y) {
+        int n = x.length;
+        this.points = points;
+        this.xs     = new int[n];
+        this.ys     = new int[n];
+        this.order  = new int[n];
+        sort(x, y, n, new long[n], xs, ys, order);
+    }
+
+    /**
+     * Validates the first n points (x[i], y[i]) and stores them in natural
+     * order into the given arrays, without allocating: xs[i] and ys[i] are the
+     * coordinates of the i-th point in natural order, and order[i] its index
+     * in the input. Every array must have room for n elements.
+     *
+     * @param  x the x-coordinates of the points
+     * @param  y the y-coordinates of the points
+     * @param  n the number of points
+     * @param  keys scratch space
+     * @param  xs the x-coordinates in natural order
+     * @param  ys the y-coordinates in natural order
+     * @param  order the permutation back to the input order
+     * @throws IllegalArgumentException if repeated points are given or a
+     *         coordinate is not between 0 and 32,767
+     */
+    static void sort(int[] x, int[] y, int n, long[] keys, int[] xs, int[] ys, int[] order) {
+        // y, x and the input index fit in 15 + 15 + 32 bits of one long
+        for (int i = 0; i < n; i++) {
+            if (x[i] < 0 || x[i] > MAX_COORDINATE || y[i] < 0 || y[i] > MAX_COORDINATE)
+                throw new IllegalArgumentException("coordinate out of range");
+            keys[i] = ((long) y[i] << 47) | ((long) x[i] << 32) | i;
+        }
+        Arrays.sort(keys, 0, n);
+
+        for (int i = 0; i < n; i++) {
+            // repeated points are adjacent once sorted
+            if (i > 0 && (keys[i] >>> 32) == (keys[i - 1] >>> 32))
+                throw new IllegalArgumentException("repeated points");
+            ys[i]    = (int) (keys[i] >>> 47);
+            xs[i]    = (int) (keys[i] >>> 32) & MAX_COORDINATE;
+            order[i] = (int) keys[i];
+        }
+    }
+
+    /**
+     * Validates and sorts the given points.
+     *
+     * @param  points the points
+     * @return the points in natural order
+     * @throws NullPointerException if the argument or any point is null
+     * @throws IllegalArgumentException if repeated points are given or a
+     *         coordinate is not between 0 and 32,767
+     */
+    static CollinearInput of(Point[] points) {
+        // check for null argument, either vector or points
+        if (points == null)
+            throw new NullPointerException("null argument");
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == null)
+                throw new NullPointerException("null argument");
+        }
+
+        int[] x = new int[points.length];
+        int[] y = new int[points.length];
+        PointCoordinates.extract(points, x, y);
+        return new CollinearInput(points, x, y);
+    }
+
+    /**
+     * Validates and sorts the points (xs[i], ys[i]).
+     *
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @return the points in natural order
+     * @throws NullPointerException if either argument is null
+     * @throws IllegalArgumentException if repeated points are given, if the
+     *         arrays have different lengths or if a coordinate is not
+     *         between 0 and 32,767
+     */
+    static CollinearInput of(int[] xs, int[] ys) {
+        if (xs == null || ys == null)
+            throw new NullPointerException("null argument");
+        if (xs.length != ys.length)
+            throw new IllegalArgumentException("xs and ys differ in length");
+        return new CollinearInput(null, xs, ys);
+    }
+
+    /**
+     * Returns the number of points.
+     *
+     * @return the number of points
+     */
+    int size() {
+        return xs.length;
+    }
+
+    /**
+     * Returns the x-coordinates of the points in natural order. The array is
+     * shared, not copied, and must not be modified.
+     *
+     * @return the x-coordinates
+     */
+    int[] xs() {
+        return xs;
+    }
+
+    /**
+     * Returns the y-coordinates of the points in natural order. The array is
+     * shared, not copied, and must not be modified.
+     *
+     * @return the y-coordinates
+     */
+    int[] ys() {
+        return ys;
+    }
+
+    /**
+     * Returns the index in the input of the i-th point in natural order.
+     *
+     * @param  i the index of a point in natural order
+     * @return the index of the point in the input
+     */
+    int inputIndex(int i) {
+        return order[i];
+    }
+
+    /**
+     * Returns the i-th point in natural order, reusing the given Point if the
+     * input was an array of points.
+     *
+     * @param  i the index of a point in natural order
+     * @return the point
+     */
+    Point point(int i) {
+        if (points != null)
+            return points[order[i]];
+        return new Point(xs[i], ys[i]);
+    }
+}
@@ -1,7 +1,10 @@
 /******************************************************************************
  *  Compilation:  javac-algs4 FastCollinearPoints.java
  *  Execution:    java-algs4 FastCollinearPoints < input.txt
- *  Dependencies: In.java StdDraw.java StdOut.java
+ *  Dependencies: Point.java LineSegment.java CollinearInput.java
+ *                PointCoordinates.java OriginSweep.java LineKeys.java LongHashSet.java
+ *                SegmentSink.java PointFile.java TokenReader.java MinPQ.java
+ *                StdDraw.java StdOut.java
  *
  *  Find every (maximal) line segment that connects a subset of 4 or more points
  *  using a faster, sorting-based algorithm.
@@ -21,6 +24,9 @@
  *                           14000  15000
  *                            6000   7000
  *
+ *  The input file can also be a binary point file (see PointFile), which is
+ *  detected automatically and read much faster for large inputs.
+ *
  * Usage:
  *  % java FastCollinearPoints input6.txt
  *  (14000, 10000) -> (32000, 10000)
@@ -32,13 +38,13 @@
  ******************************************************************************/
 
 
-import java.util.Arrays;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.MinPQ;
 import edu.princeton.cs.algs4.StdDraw;
 import edu.princeton.cs.algs4.StdOut;
 
@@ -67,127 +73,391 @@ import edu.princeton.cs.algs4.StdOut;
  *  in the order p -> q -> r -> s -> t, then FastCollinearPoints don't include
  *  the subsegments p -> s or q -> t.
  *
+ *  The points can be given either as an array of Point or directly as two
+ *  arrays of coordinates. Either way, the engine works on the coordinates only:
+ *  CollinearInput validates them and sorts them in natural order once, in time
+ *  proportional to N log N, and then for every origin an array of int indices
+ *  is sorted by slope with exact cross-product comparisons (see OriginSweep).
+ *  The inner loops never touch a Point object; points are only created, or
+ *  looked up, for the endpoints of the segments.
+ *
  *  FastCollinearPoints throws a NullPointerException either the argument to the
  *  constructor is null or if any point in the array is null. Throws an
  *  IllegalArgumentException if the argument to the constructor contains a
- *  repeated point.
+ *  repeated point, if the coordinate arrays have different lengths, or if a
+ *  coordinate is not between 0 and 32,767.
  *
  *  The order of growth of the running time is N^2 log N in the worst case and
  *  uses space proportional to N plus the number of line segments returned.
  *
  *  FastCollinearPoints works properly even if the input has 5 or more collinear
- *  points.
+ *  points. Every maximal segment is found once from each of its points, so the
+ *  segments found are deduplicated by the exact identity of their line: the
+ *  reduced direction and the intercept invariant, packed into a long key (see
+ *  LineKeys) and kept in a primitive hash set. Deciding whether a segment is
+ *  new is a single probe, whatever the number of parallel lines.
+ *
+ *  In parallel mode, the origins are split across the workers of the common
+ *  fork-join pool. Each worker keeps its own index array and scratch buffers,
+ *  so the workers share nothing but the input. Instead of a shared set of found
+ *  segments, every line gets a canonical owner: its smallest point. Since the
+ *  points are indexed in natural order, a worker reports a group only if the
+ *  origin has a smaller index than every point of the group. The segments are
+ *  then collected in the natural order of their owners, so the output does not
+ *  depend on the number of workers or on scheduling.
+ *
+ *  The static method findSegments() streams the segments to a SegmentSink as
+ *  pairs of input indices instead of building LineSegment objects. It sweeps
+ *  the origins in natural order with the same owner rule, so it keeps neither
+ *  the segments nor a set of found lines: its memory does not grow with the
+ *  number of segments, and a sink that writes them out (BinarySegmentWriter)
+ *  overlaps the output with the search.
+ *
+ *  The static method longest() finds only the k longest segments. It uses the
+ *  same owner rule: a segment owned by p ends at a point greater than p, so its
+ *  length is at most the distance from p to the farthest corner of the bounding
+ *  box of the points greater than p. The origins are visited by decreasing
+ *  bound, the k longest segments so far are kept in a min-oriented priority
+ *  queue, and the search stops as soon as the bound of the next origin is no
+ *  greater than the shortest of them. On large inputs with long segments, most
+ *  origins are never swept.
  */
 
 public class FastCollinearPoints {
-    // HashMap that stores a list of end points with the same slope
-    private HashMap<Double, List<Point>> foundSegments = new HashMap<>();
+    // keys of the lines of the segments found so far
+    private LongHashSet       foundLines;
     private List<LineSegment> segments = new ArrayList<>();
 
+    private CollinearInput input;   // the points, validated and sorted
+    private int[]          xs;      // x-coordinates, in natural order
+    private int[]          ys;      // y-coordinates, in natural order
+
     /**
      * Constructor that finds all line segments containing 4 or more collinear
      * points.
      *
      * @param  points given for pattern recognition
      * @throws NullPointerException if the given argument is null
-     * @throws IllegalArgumentException if repeated points are given
+     * @throws IllegalArgumentException if repeated points are given or a
+     *         coordinate is not between 0 and 32,767
      */
     public FastCollinearPoints(Point[] points) {
-        // check for null argument and duplicate points
-        checkNullArgument(points);
-        checkDuplicatePoints(points);
-        // we need to sort the points
-        Point[] pointsCopy = Arrays.copyOf(points, points.length);
-        Arrays.sort(pointsCopy);
-
-        for (Point startPoint : points) {
-            // sort points according to slope with startPoint
-            Arrays.sort(pointsCopy, startPoint.slopeOrder());
-
-            // ArrayList used to store points that have the same slope with
-            // respect to startPoint
-            List<Point> slopePoints = new ArrayList<>();
-            double slope = 0;
-            double previousSlope = Double.NEGATIVE_INFINITY;
-
-            for (int i = 1; i < pointsCopy.length; i++) {
-                slope = startPoint.slopeTo(pointsCopy[i]);
-                if (slope == previousSlope) {
-                    slopePoints.add(pointsCopy[i]);
-                } else {
-                    // when a new point have a greater slope with respect to
-                    // startPoint than the previous one, and if slopePoints
-                    // collects 3 or more points, add the segment
-                    if (slopePoints.size() >= 3) {
-                        slopePoints.add(startPoint);
-                        addSegmentIfNew(slopePoints, previousSlope);
-                    }
-                    // then, clear the array and add the current point
-                    slopePoints.clear();
-                    slopePoints.add(pointsCopy[i]);
-                    previousSlope = slope;
+        this(points, false);
+    }
+
+    /**
+     * Constructor that finds all line segments containing 4 or more collinear
+     * points, optionally using every core of the machine.
+     *
+     * @param  points given for pattern recognition
+     * @param  parallel true to split the origins across fork-join workers
+     * @throws NullPointerException if the given argument is null
+     * @throws IllegalArgumentException if repeated points are given or a
+     *         coordinate is not between 0 and 32,767
+     */
+    public FastCollinearPoints(Point[] points, boolean parallel) {
+        this(CollinearInput.of(points), parallel);
+    }
+
+    /**
+     * Constructor that finds all line segments containing 4 or more collinear
+     * points, given as two arrays of coordinates: the i-th point is
+     * (xs[i], ys[i]).
+     *
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @throws NullPointerException if either argument is null
+     * @throws IllegalArgumentException if repeated points are given, if the
+     *         arrays have different lengths or if a coordinate is not
+     *         between 0 and 32,767
+     */
+    public FastCollinearPoints(int[] xs, int[] ys) {
+        this(xs, ys, false);
+    }
+
+    /**
+     * Constructor that finds all line segments containing 4 or more collinear
+     * points, given as two arrays of coordinates, optionally using every core
+     * of the machine.
+     *
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @param  parallel true to split the origins across fork-join workers
+     * @throws NullPointerException if either argument is null
+     * @throws IllegalArgumentException if repeated points are given, if the
+     *         arrays have different lengths or if a coordinate is not
+     *         between 0 and 32,767
+     */
+    public FastCollinearPoints(int[] xs, int[] ys, boolean parallel) {
+        this(CollinearInput.of(xs, ys), parallel);
+    }
+
+    // find the segments of the validated, sorted input
+    private FastCollinearPoints(CollinearInput input, boolean parallel) {
+        this.input = input;
+        this.xs    = input.xs();
+        this.ys    = input.ys();
+        if (parallel)
+            findSegmentsInParallel();
+        else
+            findSegmentsInInputOrder();
+    }
+
+    // find the segments through each point in turn, in input order
+    private void findSegmentsInInputOrder() {
+        int n = xs.length;
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++)
+            rank[input.inputIndex(i)] = i;
+
+        foundLines = new LongHashSet(n);
+        OriginSweep sweep = new OriginSweep(n);
+        for (int k = 0; k < n; k++) {
+            int p = rank[k];
+            // sort the other points according to slope with p
+            sweep.sort(xs, ys, n, p);
+
+            // every run of 3 or more points with equal slopes forms a segment
+            // with p
+            int m = sweep.size();
+            int i = 0;
+            while (i < m) {
+                int q = sweep.index(i);
+                int j = i + 1;
+                while (j < m && sweep.sameSlope(q, sweep.index(j)))
+                    j++;
+                if (j - i >= 3) {
+                    long key = LineKeys.line(xs[p], ys[p], sweep.dx(q), sweep.dy(q));
+                    addSegmentIfNew(key, p, sweep, i, j);
                 }
+                i = j;
             }
+        }
+    }
 
-            // for the last point
-            if (slopePoints.size() >= 3) {
-                slopePoints.add(startPoint);
-                addSegmentIfNew(slopePoints, slope);
-            }
+    // find the segments with every origin, in parallel, keeping only the
+    // segments owned by their origin
+    private void findSegmentsInParallel() {
+        int n = xs.length;
+        LineSegment[][] owned = new LineSegment[n][];
+        int threshold = Math.max(1, n / (8 * ForkJoinPool.getCommonPoolParallelism()));
+        ForkJoinPool.commonPool().invoke(new OriginTask(owned, 0, n, threshold));
+
+        for (LineSegment[] found : owned) {
+            if (found != null)
+                segments.addAll(Arrays.asList(found));
         }
     }
 
-    // check for null argument, either vector or points
-    private void checkNullArgument(Point[] points) {
-        if (points == null)
-            throw new NullPointerException("null argument");
-        else {
-            for (int i = 0; i < points.length; i++) {
-                if (points[i] == null)
-                    throw new NullPointerException("null argument");
+    // fork-join task for the origins lo..hi-1; leaves of at most threshold
+    // origins run sequentially with their own sweep
+    private class OriginTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final LineSegment[][] owned;
+        private final int             lo;
+        private final int             hi;
+        private final int             threshold;
+
+        public OriginTask(LineSegment[][] owned, int lo, int hi, int threshold) {
+            this.owned     = owned;
+            this.lo        = lo;
+            this.hi        = hi;
+            this.threshold = threshold;
+        }
+
+        protected void compute() {
+            if (hi - lo > threshold) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new OriginTask(owned, lo, mid, threshold),
+                          new OriginTask(owned, mid, hi, threshold));
+                return;
+            }
+
+            OriginSweep sweep = new OriginSweep(xs.length);
+            for (int p = lo; p < hi; p++) {
+                List<LineSegment> list = new ArrayList<>();
+                sweep.sortOwned(xs, ys, xs.length, p, (a, b) -> list.add(segment(a, b)));
+                if (!list.isEmpty())
+                    owned[p] = list.toArray(new LineSegment[list.size()]);
             }
         }
     }
 
-    // check for duplicate points
-    private void checkDuplicatePoints(Point[] points) {
-        for (int i = 0; i < points.length - 1; i++) {
-            for (int j = i + 1; j < points.length; j++) {
-                if (points[i].compareTo(points[j]) == 0)
-                    throw new IllegalArgumentException("repeated points");
-            }
+    // add the segment through p and the points of the run i..j-1 of the sweep
+    // if its line isn't in the set already
+    private void addSegmentIfNew(long key, int p, OriginSweep sweep, int i, int j) {
+        if (!foundLines.add(key))
+            return;
+
+        // get the end points of the segment found; indices are in natural order
+        int first = p;
+        int last  = p;
+        for (int k = i; k < j; k++) {
+            first = Math.min(first, sweep.index(k));
+            last  = Math.max(last, sweep.index(k));
         }
+        segments.add(segment(first, last));
     }
 
-    // add the segment if isn't in the list already
-    private void addSegmentIfNew(List<Point> slopePoints, double slope) {
-        List<Point> endPoints = foundSegments.get(slope);
-        Collections.sort(slopePoints);
-
-        // get the end points of the segment founded
-        Point startPoint = slopePoints.get(0);
-        Point endPoint = slopePoints.get(slopePoints.size() - 1);
-
-        // if there's no segment founded with the current slope, add segment
-        if (endPoints == null) {
-            endPoints = new ArrayList<>();
-            endPoints.add(endPoint);
-            foundSegments.put(slope, endPoints);
-            segments.add(new LineSegment(startPoint, endPoint));
-        // else, compare current end point with those retrieved from the
-        // foundSegments element and add it if it isn't in the HashMap
-        } else {
-            for (Point currentEndPoint : endPoints) {
-                if (currentEndPoint.compareTo(endPoint) == 0) {
-                    return;
-                }
+    // the line segment between the points of index p and q
+    private LineSegment segment(int p, int q) {
+        return new LineSegment(input.point(p), input.point(q));
+    }
+
+    /**
+     * Finds all line segments containing 4 or more collinear points and
+     * passes each one to the sink as soon as it is found, as the indices of
+     * its endpoints in the given array, without keeping any of them.
+     *
+     * @param  points given for pattern recognition
+     * @param  sink the consumer of the segments
+     * @throws NullPointerException if either argument is null
+     * @throws IllegalArgumentException if repeated points are given or a
+     *         coordinate is not between 0 and 32,767
+     */
+    public static void findSegments(Point[] points, SegmentSink sink) {
+        if (sink == null)
+            throw new NullPointerException("null argument");
+        findSegments(CollinearInput.of(points), sink);
+    }
+
+    /**
+     * Finds all line segments containing 4 or more collinear points, given as
+     * two arrays of coordinates, and passes each one to the sink as soon as it
+     * is found, as the indices of its endpoints in the arrays.
+     *
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @param  sink the consumer of the segments
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if repeated points are given, if the
+     *         arrays have different lengths or if a coordinate is not
+     *         between 0 and 32,767
+     */
+    public static void findSegments(int[] xs, int[] ys, SegmentSink sink) {
+        if (sink == null)
+            throw new NullPointerException("null argument");
+        findSegments(CollinearInput.of(xs, ys), sink);
+    }
+
+    // stream the segments with the owner rule, origin by origin in natural
+    // order, so that no set of found lines is needed either
+    private static void findSegments(CollinearInput input, SegmentSink sink) {
+        int[] xs = input.xs();
+        int[] ys = input.ys();
+        OriginSweep sweep = new OriginSweep(xs.length);
+        for (int p = 0; p < xs.length; p++)
+            sweep.sortOwned(xs, ys, xs.length, p,
+                            (a, b) -> sink.segment(input.inputIndex(a), input.inputIndex(b)));
+    }
+
+    /**
+     * Returns the k longest line segments containing 4 or more collinear
+     * points, longest first, or all of them if there are fewer than k.
+     *
+     * @param  points given for pattern recognition
+     * @param  k the number of segments to return
+     * @return an array with the k longest line segments
+     * @throws NullPointerException if the given argument is null
+     * @throws IllegalArgumentException if repeated points are given, if a
+     *         coordinate is not between 0 and 32,767 or if k < 1
+     */
+    public static LineSegment[] longest(Point[] points, int k) {
+        if (k < 1)
+            throw new IllegalArgumentException("k < 1");
+        return longest(CollinearInput.of(points), k);
+    }
+
+    /**
+     * Returns the k longest line segments containing 4 or more collinear
+     * points, given as two arrays of coordinates, longest first, or all of
+     * them if there are fewer than k.
+     *
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @param  k the number of segments to return
+     * @return an array with the k longest line segments
+     * @throws NullPointerException if either argument is null
+     * @throws IllegalArgumentException if repeated points are given, if the
+     *         arrays have different lengths, if a coordinate is not
+     *         between 0 and 32,767 or if k < 1
+     */
+    public static LineSegment[] longest(int[] xs, int[] ys, int k) {
+        if (k < 1)
+            throw new IllegalArgumentException("k < 1");
+        return longest(CollinearInput.of(xs, ys), k);
+    }
+
+    private static LineSegment[] longest(CollinearInput input, int k) {
+        int   n  = input.size();
+        int[] xs = input.xs();
+        int[] ys = input.ys();
+
+        // bounding box of the points after p; their y is at least ys[p], so
+        // only the top corners and the x range are needed
+        long[] bounds = new long[n];
+        int minX = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int p = n - 1; p >= 0; p--) {
+            long bound = 0;
+            if (p < n - 1) {
+                long dx = Math.max(Math.abs(minX - xs[p]), Math.abs(maxX - xs[p]));
+                long dy = maxY - ys[p];
+                bound = dx * dx + dy * dy;
             }
-            // as we sort the points, we can be sure that if the current end
-            // point isn't in foundSegments end points its because either the
-            // current segment cointains a previous segment or the current
-            // segment is parallel to other
-            endPoints.add(endPoint);
-            segments.add(new LineSegment(startPoint, endPoint));
+            // squared bound in the high bits, origin in the low bits
+            bounds[p] = (bound << 32) | p;
+            minX = Math.min(minX, xs[p]);
+            maxX = Math.max(maxX, xs[p]);
+            maxY = Math.max(maxY, ys[p]);
+        }
+        Arrays.sort(bounds);
+
+        MinPQ<Candidate> best  = new MinPQ<>();
+        OriginSweep      sweep = new OriginSweep(n);
+        for (int r = n - 1; r >= 0; r--) {
+            int  p     = (int) bounds[r];
+            long bound = bounds[r] >>> 32;
+            // no later origin can own a longer segment than the k found
+            if (best.size() == k && bound <= best.min().length)
+                break;
+
+            sweep.sortOwned(xs, ys, n, p, (a, b) -> {
+                long dx = xs[b] - xs[a];
+                long dy = ys[b] - ys[a];
+                long length = dx * dx + dy * dy;
+                if (best.size() < k || length > best.min().length) {
+                    best.insert(new Candidate(length, a, b));
+                    if (best.size() > k)
+                        best.delMin();
+                }
+            });
+        }
+
+        LineSegment[] longest = new LineSegment[best.size()];
+        for (int i = longest.length - 1; i >= 0; i--) {
+            Candidate c = best.delMin();
+            longest[i] = new LineSegment(input.point(c.p), input.point(c.q));
+        }
+        return longest;
+    }
+
+    // a segment from p to q, compared by its squared length
+    private static class Candidate implements Comparable<Candidate> {
+        private final long length;
+        private final int  p;
+        private final int  q;
+
+        public Candidate(long length, int p, int q) {
+            this.length = length;
+            this.p      = p;
+            this.q      = q;
+        }
+
+        public int compareTo(Candidate that) {
+            return Long.compare(this.length, that.length);
         }
     }
 
@@ -213,26 +483,22 @@ public class FastCollinearPoints {
      * Unit tests the FastCollinearPoints data type.
      */
     public static void main(String[] args) {
-        // read the N points from a file
-        In in = new In(args[0]);
-        int N = in.readInt();
-        Point[] points = new Point[N];
-        for (int i = 0; i < N; i++) {
-            int x = in.readInt();
-            int y = in.readInt();
-            points[i] = new Point(x, y);
-        }
+        // read the points from a text or a binary point file, straight into
+        // arrays of coordinates
+        PointFile file = PointFile.load(args[0]);
+        int[]     xs   = file.xs();
+        int[]     ys   = file.ys();
 
         // draw the points
         StdDraw.show(0);
         StdDraw.setXscale(0, 32768);
         StdDraw.setYscale(0, 32768);
-        for (Point p : points)
-            p.draw();
+        for (int i = 0; i < xs.length; i++)
+            StdDraw.point(xs[i], ys[i]);
         StdDraw.show();
 
         // print and draw the line segments
-        BruteCollinearPoints collinear = new BruteCollinearPoints(points);
+        FastCollinearPoints collinear = new FastCollinearPoints(xs, ys);
         for (LineSegment segment : collinear.segments()) {
             StdOut.println(segment);
             segment.draw();
@@ -0,0 +1,177 @@
+/******************************************************************************
+ *  Compilation:  javac-algs4 HashCollinearPoints.java
+ *  Execution:    java-algs4 HashCollinearPoints input.txt
+ *  Dependencies: Point.java LineSegment.java CollinearInput.java
+ *                PointCoordinates.java LineKeys.java LongIntHashMap.java
+ *                PointFile.java TokenReader.java StdDraw.java StdOut.java
+ *
+ *  Find every (maximal) line segment that connects a subset of 4 or more points
+ *  using hashing of exact slopes instead of sorting.
+ *
+ *  The input file has the same format as for FastCollinearPoints.
+ *
+ * Usage:
+ *  % java HashCollinearPoints input8.txt
+ *  (10000, 0) -> (0, 10000)
+ *  (3000, 4000) -> (20000, 21000)
+ *
+ ******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.princeton.cs.algs4.StdDraw;
+import edu.princeton.cs.algs4.StdOut;
+
+
+/**
+ *  HashCollinearPoints solves the same problem as FastCollinearPoints, with the
+ *  same idea of taking each point p in turn as the origin, but it groups the
+ *  other points by their slope with respect to p with a hash table instead of
+ *  sorting them:
+ *
+ *      - For each other point q, compute the direction from p to q as a pair
+ *        of integers (dx, dy) reduced to lowest terms, and pack it into a long
+ *        key (see LineKeys). Points on the same line through p, on either side
+ *        of it, get the same key.
+ *      - Look the key up in a primitive open-addressing hash table that maps it
+ *        to a group, and update the count and the extreme points of the group.
+ *      - Every group with 3 (or more) points forms, together with p, a line
+ *        segment of 4 (or more) collinear points.
+ *
+ *  Since slopes are compared as exact integer pairs, there is no floating-point
+ *  division and no risk of two different slopes rounding to the same double.
+ *
+ *  Points are first sorted in natural order by CollinearInput, which also finds
+ *  repeated points, so comparing points is comparing their indices. Each
+ *  maximal segment is then reported exactly once, by its smallest point: an
+ *  origin only reports a group if all the points of the group are greater than
+ *  the origin. No set of found segments is needed.
+ *
+ *  HashCollinearPoints throws a NullPointerException either the argument to
+ *  the constructor is null or if any point in the array is null. Throws an
+ *  IllegalArgumentException if the argument to the constructor contains a
+ *  repeated point. Coordinates must be between 0 and 32,767.
+ *
+ *  The order of growth of the running time is N^2 expected (plus N log N for
+ *  the initial sort) and it uses space proportional to N plus the number of
+ *  line segments returned.
+ */
+
+public class HashCollinearPoints {
+    private final List<LineSegment> segments = new ArrayList<>();
+
+    /**
+     * Constructor that finds all line segments containing 4 or more collinear
+     * points.
+     *
+     * @param  points given for pattern recognition
+     * @throws NullPointerException if the given argument is null
+     * @throws IllegalArgumentException if repeated points are given or a
+     *         coordinate is not between 0 and 32,767
+     */
+    public HashCollinearPoints(Point[] points) {
+        this(CollinearInput.of(points));
+    }
+
+    /**
+     * Constructor that finds all line segments containing 4 or more collinear
+     * points, given as two arrays of coordinates: the i-th point is
+     * (xs[i], ys[i]).
+     *
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @throws NullPointerException if either argument is null
+     * @throws IllegalArgumentException if repeated points are given, if the
+     *         arrays have different lengths or if a coordinate is not
+     *         between 0 and 32,767
+     */
+    public HashCollinearPoints(int[] xs, int[] ys) {
+        this(CollinearInput.of(xs, ys));
+    }
+
+    // find the segments of the input, validated and sorted once, so that index
+    // order is natural order
+    private HashCollinearPoints(CollinearInput input) {
+        int   n  = input.size();
+        int[] xs = input.xs();
+        int[] ys = input.ys();
+
+        // per origin: slope key -> group, and the size and last point of each
+        // group; the first point of a group is the first index that joins it
+        LongIntHashMap groupOf = new LongIntHashMap(n);
+        int[] count = new int[n];
+        int[] first = new int[n];
+        int[] last  = new int[n];
+
+        for (int p = 0; p < n; p++) {
+            groupOf.clear();
+            int groups = 0;
+
+            for (int q = 0; q < n; q++) {
+                if (q == p)
+                    continue;
+                long key = LineKeys.direction(xs[q] - xs[p], ys[q] - ys[p]);
+                int  g   = groupOf.get(key, -1);
+                if (g < 0) {
+                    g = groups++;
+                    groupOf.put(key, g);
+                    count[g] = 0;
+                    first[g] = q;
+                }
+                count[g]++;
+                last[g] = q;
+            }
+
+            // report the segments whose smallest point is p
+            for (int g = 0; g < groups; g++) {
+                if (count[g] >= 3 && first[g] > p)
+                    segments.add(new LineSegment(input.point(p), input.point(last[g])));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of segments found.
+     *
+     * @return the number of line segments
+     */
+    public int numberOfSegments() {
+        return segments.size();
+    }
+
+    /**
+     * Returns the line segments found.
+     *
+     * @return an array with the line segments
+     */
+    public LineSegment[] segments() {
+        return segments.toArray(new LineSegment[segments.size()]);
+    }
+
+    /**
+     * Unit tests the HashCollinearPoints data type.
+     */
+    public static void main(String[] args) {
+        // read the points from a text or a binary point file, straight into
+        // arrays of coordinates
+        PointFile file = PointFile.load(args[0]);
+        int[]     xs   = file.xs();
+        int[]     ys   = file.ys();
+
+        // draw the points
+        StdDraw.show(0);
+        StdDraw.setXscale(0, 32768);
+        StdDraw.setYscale(0, 32768);
+        for (int i = 0; i < xs.length; i++)
+            StdDraw.point(xs[i], ys[i]);
+        StdDraw.show();
+
+        // print and draw the line segments
+        HashCollinearPoints collinear = new HashCollinearPoints(xs, ys);
+        for (LineSegment segment : collinear.segments()) {
+            StdOut.println(segment);
+            segment.draw();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/******************************************************************************
+ *  Compilation:  javac-algs4 IncrementalCollinearPoints.java
+ *  Execution:    java-algs4 IncrementalCollinearPoints < input.txt
+ *  Dependencies: Point.java LineSegment.java PointCoordinates.java
+ *                LineKeys.java LongIntHashMap.java LongHashSet.java
+ *                TokenReader.java StdOut.java
+ *
+ *  Maintain the maximal line segments of 4 or more collinear points of a set
+ *  of points that grows one point at a time.
+ *
+ *  The input has the same format as for FastCollinearPoints. Every time a point
+ *  completes or extends a segment, the segment is printed.
+ *
+ ******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.princeton.cs.algs4.StdOut;
+
+
+/**
+ *  IncrementalCollinearPoints solves the collinear points problem online: points
+ *  are added one at a time, and add() tells right away which segments of 4 (or
+ *  more) collinear points the new point has completed or extended, instead of
+ *  running FastCollinearPoints again over all the points.
+ *
+ *  It keeps an index of every line through 2 or more of the points added so
+ *  far, keyed by the exact identity of the line (see LineKeys), with the number
+ *  of points on the line and its two extreme points in natural order. When a
+ *  point p is added, the line through p and each earlier point q is looked up:
+ *
+ *      - if it is a known line, p joins it; since every point of the line is
+ *        seen as some q, a line is updated only the first time it is seen;
+ *      - otherwise q was the only earlier point on it, and a new line with p
+ *        and q is recorded.
+ *
+ *  Every line that reaches 4 (or more) points is a maximal segment: the line
+ *  holds all the points added so far that lie on it. add() returns the segments
+ *  of the lines p joined that have 4 (or more) points, which are exactly the
+ *  segments p created (a line that reached 4 points) or extended.
+ *
+ *  IncrementalCollinearPoints throws a NullPointerException if the point to add
+ *  is null, and an IllegalArgumentException if it was already added or if a
+ *  coordinate is not between 0 and 32,767.
+ *
+ *  add() takes time proportional to N expected, where N is the number of points
+ *  added so far. The index holds one entry per line through 2 or more points,
+ *  so it uses space proportional to N^2 in the worst case.
+ */
+
+public class IncrementalCollinearPoints {
+    private static final int MAX_COORDINATE = 32767;
+
+    private Point[] points = new Point[16];     // points in insertion order
+    private int[]   xs     = new int[16];
+    private int[]   ys     = new int[16];
+    private int     n;                          // number of points
+
+    private final LongHashSet    added  = new LongHashSet(16);
+    private final LongIntHashMap lineOf = new LongIntHashMap(16);
+    private int[] count = new int[16];  // count[l]: number of points on line l
+    private int[] first = new int[16];  // first[l]: smallest point on line l
+    private int[] last  = new int[16];  // last[l]: greatest point on line l
+    private int[] seen  = new int[16];  // seen[l]: last point that updated l
+    private int   lines;                // number of lines
+
+    // lines with 4 or more points, in the order they reached 4 points
+    private int[] segmentLines = new int[16];
+    private int   segments;             // number of such lines
+
+    /**
+     * Adds the point to the set and returns the segments of 4 or more
+     * collinear points that it created or extended.
+     *
+     * @param  point the point to add
+     * @return the maximal segments that contain the point, if any
+     * @throws NullPointerException if the point is null
+     * @throws IllegalArgumentException if the point was already added or a
+     *         coordinate is not between 0 and 32,767
+     */
+    public List<LineSegment> add(Point point) {
+        if (point == null)
+            throw new NullPointerException("null argument");
+
+        long c  = PointCoordinates.coordinates(point);
+        int  px = PointCoordinates.x(c);
+        int  py = PointCoordinates.y(c);
+        if (px < 0 || px > MAX_COORDINATE || py < 0 || py > MAX_COORDINATE)
+            throw new IllegalArgumentException("coordinate out of range");
+        if (!added.add(((long) px << 32) | py))
+            throw new IllegalArgumentException("repeated points");
+
+        int p = n;
+        if (p == points.length) {
+            points = Arrays.copyOf(points, 2 * p);
+            xs     = Arrays.copyOf(xs, 2 * p);
+            ys     = Arrays.copyOf(ys, 2 * p);
+        }
+        points[p] = point;
+        xs[p]     = px;
+        ys[p]     = py;
+        n++;
+
+        List<LineSegment> found = new ArrayList<>();
+        for (int q = 0; q < p; q++) {
+            long key = LineKeys.line(px, py, xs[q] - px, ys[q] - py);
+            int  l   = lineOf.get(key, -1);
+            if (l < 0) {
+                newLine(key, p, q);
+            } else if (seen[l] != p) {
+                // p joins a known line, once however many of its points we see
+                seen[l] = p;
+                count[l]++;
+                if (less(p, first[l])) first[l] = p;
+                if (less(last[l], p))  last[l]  = p;
+
+                if (count[l] == 4) {
+                    if (segments == segmentLines.length)
+                        segmentLines = Arrays.copyOf(segmentLines, 2 * segments);
+                    segmentLines[segments++] = l;
+                }
+                if (count[l] >= 4)
+                    found.add(segment(l));
+            }
+        }
+        return found;
+    }
+
+    // record the line through the points p and q, with the given key
+    private void newLine(long key, int p, int q) {
+        if (lines == count.length) {
+            count = Arrays.copyOf(count, 2 * lines);
+            first = Arrays.copyOf(first, 2 * lines);
+            last  = Arrays.copyOf(last, 2 * lines);
+            seen  = Arrays.copyOf(seen, 2 * lines);
+        }
+        int l = lines++;
+        lineOf.put(key, l);
+        count[l] = 2;
+        first[l] = less(p, q) ? p : q;
+        last[l]  = less(p, q) ? q : p;
+        seen[l]  = p;
+    }
+
+    // is the point i smaller than the point j in natural order (by y, then x)?
+    private boolean less(int i, int j) {
+        if (ys[i] != ys[j])
+            return ys[i] < ys[j];
+        return xs[i] < xs[j];
+    }
+
+    // the segment between the extreme points of line l
+    private LineSegment segment(int l) {
+        return new LineSegment(points[first[l]], points[last[l]]);
+    }
+
+    /**
+     * Returns the number of points added.
+     *
+     * @return the number of points
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns the number of maximal segments of the points added so far.
+     *
+     * @return the number of line segments
+     */
+    public int numberOfSegments() {
+        return segments;
+    }
+
+    /**
+     * Returns the maximal segments of the points added so far.
+     *
+     * @return an array with the line segments
+     */
+    public LineSegment[] segments() {
+        LineSegment[] result = new LineSegment[segments];
+        for (int i = 0; i < segments; i++)
+            result[i] = segment(segmentLines[i]);
+        return result;
+    }
+
+    /**
+     * Unit tests the IncrementalCollinearPoints data type.
+     */
+    public static void main(String[] args) {
+        TokenReader in = new TokenReader();
+        int N = in.readInt();
+        IncrementalCollinearPoints collinear = new IncrementalCollinearPoints();
+        for (int i = 0; i < N; i++) {
+            int x = in.readInt();
+            int y = in.readInt();
+            Point p = new Point(x, y);
+            for (LineSegment segment : collinear.add(p))
+                StdOut.println(p + ": " + segment);
+        }
+        StdOut.println(collinear.numberOfSegments() + " segments");
+    }
+}
@@ -0,0 +1,88 @@
+/******************************************************************************
+ *  Compilation:  javac LineKeys.java
+ *  Execution:    none
+ *  Dependencies:
+ *
+ *  Exact integer keys for the direction and the identity of a line.
+ *
+ ******************************************************************************/
+
+
+/**
+ *  LineKeys packs the direction of the line through two points into a long,
+ *  so that two pairs of points get the same key if and only if the lines
+ *  through them are parallel. Unlike the double returned by slopeTo(), the key
+ *  is computed without division and can be hashed and compared exactly.
+ *
+ *  The direction (dx, dy) is reduced to lowest terms and its sign is fixed so
+ *  that dx > 0, or dx == 0 and dy > 0; the two halves are then stored in the
+ *  high and low 32 bits of the key.
+ *
+ *  The key of a line adds the intercept invariant c = dx * y - dy * x, which
+ *  is the same for every point (x, y) of the line once (dx, dy) is reduced and
+ *  its sign fixed, and differs between parallel lines. Direction and invariant
+ *  together identify the line exactly and fit in 63 bits.
+ *
+ *  Coordinates are assumed to be between 0 and 32,767, as the assignment
+ *  guarantees, so no difference or product overflows and every field of the
+ *  keys fits in its bits.
+ */
+
+final class LineKeys {
+
+    // this class should not be instantiated
+    private LineKeys() { }
+
+    /**
+     * Returns the key of the direction (dx, dy).
+     *
+     * @param  dx the difference of the x-coordinates, not 0 if dy is 0
+     * @param  dy the difference of the y-coordinates, not 0 if dx is 0
+     * @return the canonical key of the direction
+     */
+    static long direction(int dx, int dy) {
+        if (dx < 0 || (dx == 0 && dy < 0)) {
+            dx = -dx;
+            dy = -dy;
+        }
+        int g = gcd(dx, Math.abs(dy));
+        dx /= g;
+        dy /= g;
+        return ((long) dy << 32) | (dx & 0xffffffffL);
+    }
+
+    /**
+     * Returns the key of the line through (x, y) with direction (dx, dy).
+     *
+     * @param  x the x-coordinate of a point of the line
+     * @param  y the y-coordinate of a point of the line
+     * @param  dx the difference of the x-coordinates of two points of the line
+     * @param  dy the difference of the y-coordinates of two points of the line
+     * @return the canonical key of the line
+     */
+    static long line(int x, int y, int dx, int dy) {
+        if (dx < 0 || (dx == 0 && dy < 0)) {
+            dx = -dx;
+            dy = -dy;
+        }
+        int g = gcd(dx, Math.abs(dy));
+        dx /= g;
+        dy /= g;
+
+        // dx takes 15 bits, dy + 32767 takes 16 and c + 2^30 takes 32
+        long c = (long) dx * y - (long) dy * x;
+        return ((long) dx << 48)
+             | ((long) (dy + 32767) << 32)
+             | ((c + (1L << 30)) & 0xffffffffL);
+    }
+
+    // greatest common divisor of two non-negative integers, not both 0
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,281 @@
+/******************************************************************************
+ *  Compilation:  javac-algs4 LocalCollinearPoints.java
+ *  Execution:    java-algs4 LocalCollinearPoints input.txt R
+ *  Dependencies: Point.java LineSegment.java CollinearInput.java
+ *                PointCoordinates.java LineKeys.java LongIntHashMap.java
+ *                PointFile.java TokenReader.java StdDraw.java StdOut.java
+ *
+ *  Find every maximal run of 4 or more collinear points in which consecutive
+ *  points are at most a given distance R apart, looking only at nearby points.
+ *
+ *  The input file has the same format as for FastCollinearPoints.
+ *
+ * Usage:
+ *  % java LocalCollinearPoints input6.txt 4000
+ *  (14000, 10000) -> (21000, 10000)
+ *
+ ******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.princeton.cs.algs4.StdDraw;
+import edu.princeton.cs.algs4.StdOut;
+
+
+/**
+ *  LocalCollinearPoints answers a local version of the collinear points problem:
+ *  it finds every run of 4 or more collinear points in which each point is at
+ *  distance at most R from the next one, and reports each run that cannot be
+ *  extended on either side. When R is at least the distance between any two
+ *  points, the runs are the segments of FastCollinearPoints; for a small R,
+ *  the global engines waste nearly all their work on far-apart pairs.
+ *
+ *  The points are bucketed into a uniform grid of cells of side R, so every
+ *  point within distance R of a point p lies in the 3-by-3 block of cells
+ *  around the cell of p. For each point p, these neighbors are grouped by their
+ *  exact direction from p (see LineKeys) with a hash table, which gives, for
+ *  every line through p:
+ *
+ *      - the nearest neighbor on the positive side of the line, which is the
+ *        next point of the run through p along that line, and
+ *      - whether there is any neighbor on the negative side; if there is none,
+ *        p is the first point of a run.
+ *
+ *  Then each run is walked from its first point by following the next points,
+ *  and reported if it has 4 or more points. The nearest point on one side is
+ *  the next point of the run, since no point of the line lies between them.
+ *
+ *  LocalCollinearPoints throws a NullPointerException if the points are null,
+ *  and an IllegalArgumentException if R is not positive or if the points are
+ *  invalid, as described in CollinearInput.
+ *
+ *  If every point has at most k points within distance R, the order of growth
+ *  of the running time is N k expected (plus N log N to sort the points into
+ *  the grid), and it uses space proportional to N k.
+ */
+
+public class LocalCollinearPoints {
+    private final List<LineSegment> segments = new ArrayList<>();
+
+    /**
+     * Finds every maximal run of 4 or more collinear points whose consecutive
+     * points are at most distance r apart.
+     *
+     * @param  points given for pattern recognition
+     * @param  r the maximum distance between consecutive points of a run
+     * @throws NullPointerException if the given points are null
+     * @throws IllegalArgumentException if repeated points are given, if a
+     *         coordinate is not between 0 and 32,767 or if r <= 0
+     */
+    public LocalCollinearPoints(Point[] points, double r) {
+        this(CollinearInput.of(points), r);
+    }
+
+    /**
+     * Finds every maximal run of 4 or more collinear points whose consecutive
+     * points are at most distance r apart, given as two arrays of coordinates.
+     *
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @param  r the maximum distance between consecutive points of a run
+     * @throws NullPointerException if either array is null
+     * @throws IllegalArgumentException if repeated points are given, if the
+     *         arrays have different lengths, if a coordinate is not between
+     *         0 and 32,767 or if r <= 0
+     */
+    public LocalCollinearPoints(int[] xs, int[] ys, double r) {
+        this(CollinearInput.of(xs, ys), r);
+    }
+
+    private LocalCollinearPoints(CollinearInput input, double r) {
+        if (!(r > 0))
+            throw new IllegalArgumentException("r <= 0");
+
+        int   n  = input.size();
+        int[] xs = input.xs();
+        int[] ys = input.ys();
+
+        // no two points are more than 32767 * sqrt(2) apart
+        double rr   = Math.min(r, 2 * CollinearInput.MAX_COORDINATE);
+        int    side = (int) Math.ceil(rr);
+        double r2   = rr * rr;
+
+        // bucket the points into cells of the grid: byCell lists the points
+        // cell by cell, and cell c holds byCell[start[c]..end[c]-1]
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = (cellKey(xs[i] / side, ys[i] / side) << 32) | i;
+        Arrays.sort(keys);
+
+        int[] byCell = new int[n];
+        int[] start  = new int[n];
+        int[] end    = new int[n];
+        int   cells  = 0;
+        LongIntHashMap cellOf = new LongIntHashMap(n);
+        for (int i = 0; i < n; i++) {
+            byCell[i] = (int) keys[i];
+            long cell = keys[i] >>> 32;
+            if (i == 0 || cell != keys[i - 1] >>> 32) {
+                cellOf.put(cell, cells);
+                start[cells] = i;
+                cells++;
+            }
+            end[cells - 1] = i + 1;
+        }
+
+        // for every point and every line through it: the next point along the
+        // line, keyed by point and direction; and the first points of runs
+        LongIntHashMap next       = new LongIntHashMap(n);
+        long[]         runStarts  = new long[16];
+        int            runs       = 0;
+        LongIntHashMap lineOf     = new LongIntHashMap(16);
+        int[]          nearest    = new int[16];
+        long[]         nearestD2  = new long[16];
+        boolean[]      hasBefore  = new boolean[16];
+        long[]         direction  = new long[16];
+
+        for (int p = 0; p < n; p++) {
+            lineOf.clear();
+            int lines = 0;
+            int cx = xs[p] / side;
+            int cy = ys[p] / side;
+
+            for (int i = cx - 1; i <= cx + 1; i++) {
+                for (int j = cy - 1; j <= cy + 1; j++) {
+                    int c = (i < 0 || j < 0) ? -1 : cellOf.get(cellKey(i, j), -1);
+                    if (c < 0)
+                        continue;
+                    for (int k = start[c]; k < end[c]; k++) {
+                        int  q  = byCell[k];
+                        int  dx = xs[q] - xs[p];
+                        int  dy = ys[q] - ys[p];
+                        long d2 = (long) dx * dx + (long) dy * dy;
+                        if (q == p || d2 > r2)
+                            continue;
+
+                        long key = LineKeys.direction(dx, dy);
+                        int  l   = lineOf.get(key, -1);
+                        if (l < 0) {
+                            if (lines == nearest.length) {
+                                nearest   = Arrays.copyOf(nearest, 2 * lines);
+                                nearestD2 = Arrays.copyOf(nearestD2, 2 * lines);
+                                hasBefore = Arrays.copyOf(hasBefore, 2 * lines);
+                                direction = Arrays.copyOf(direction, 2 * lines);
+                            }
+                            l = lines++;
+                            lineOf.put(key, l);
+                            nearest[l]   = -1;
+                            hasBefore[l] = false;
+                            direction[l] = key;
+                        }
+
+                        // q is on the positive side if the direction from p
+                        // to q did not have to be flipped to be canonical
+                        boolean positive = dx > 0 || (dx == 0 && dy > 0);
+                        if (!positive)
+                            hasBefore[l] = true;
+                        else if (nearest[l] < 0 || d2 < nearestD2[l]) {
+                            nearest[l]   = q;
+                            nearestD2[l] = d2;
+                        }
+                    }
+                }
+            }
+
+            for (int l = 0; l < lines; l++) {
+                if (nearest[l] < 0)
+                    continue;
+                long key = pointDirectionKey(p, direction[l]);
+                next.put(key, nearest[l]);
+                if (!hasBefore[l]) {
+                    if (runs == runStarts.length)
+                        runStarts = Arrays.copyOf(runStarts, 2 * runs);
+                    runStarts[runs++] = key;
+                }
+            }
+        }
+
+        // walk every run from its first point
+        for (int i = 0; i < runs; i++) {
+            long key   = runStarts[i];
+            int  first = (int) (key >>> 31);
+            long dir   = key & ((1L << 31) - 1);
+            int  last  = first;
+            int  count = 1;
+            for (int q = next.get(key, -1); q >= 0; q = next.get((long) q << 31 | dir, -1)) {
+                last = q;
+                count++;
+            }
+            if (count < 4)
+                continue;
+            // runs are walked toward +x, so on a line of negative slope the
+            // last point precedes the first in natural order (by index)
+            if (last < first) {
+                int swap = first;
+                first = last;
+                last  = swap;
+            }
+            segments.add(new LineSegment(input.point(first), input.point(last)));
+        }
+    }
+
+    // key of the grid cell (i, j); cell coordinates fit in 16 bits
+    private static long cellKey(int i, int j) {
+        return ((long) i << 16) | j;
+    }
+
+    // key of point p and a direction key from LineKeys: dx takes 15 bits,
+    // dy + 32767 takes 16 bits and p the 31 bits above them
+    private static long pointDirectionKey(int p, long direction) {
+        int dx = (int) direction;
+        int dy = (int) (direction >> 32);
+        return ((long) p << 31) | ((long) (dy + 32767) << 15) | dx;
+    }
+
+    /**
+     * Returns the number of runs found.
+     *
+     * @return the number of line segments
+     */
+    public int numberOfSegments() {
+        return segments.size();
+    }
+
+    /**
+     * Returns the runs found, as segments between their extreme points.
+     *
+     * @return an array with the line segments
+     */
+    public LineSegment[] segments() {
+        return segments.toArray(new LineSegment[segments.size()]);
+    }
+
+    /**
+     * Unit tests the LocalCollinearPoints data type.
+     */
+    public static void main(String[] args) {
+        // read the points from a text or a binary point file, straight into
+        // arrays of coordinates
+        PointFile file = PointFile.load(args[0]);
+        int[]     xs   = file.xs();
+        int[]     ys   = file.ys();
+        double r = Double.parseDouble(args[1]);
+
+        // draw the points
+        StdDraw.show(0);
+        StdDraw.setXscale(0, 32768);
+        StdDraw.setYscale(0, 32768);
+        for (int i = 0; i < xs.length; i++)
+            StdDraw.point(xs[i], ys[i]);
+        StdDraw.show();
+
+        // print and draw the line segments
+        LocalCollinearPoints collinear = new LocalCollinearPoints(xs, ys, r);
+        for (LineSegment segment : collinear.segments()) {
+            StdOut.println(segment);
+            segment.draw();
+        }
+    }
+}
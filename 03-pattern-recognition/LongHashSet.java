@@ -0,0 +1,127 @@
+/******************************************************************************
+ *  Compilation:  javac LongHashSet.java
+ *  Execution:    none
+ *  Dependencies:
+ *
+ *  A set of long keys using open addressing.
+ *
+ ******************************************************************************/
+
+import java.util.Arrays;
+
+
+/**
+ *  LongHashSet is a set of primitive long keys, implemented with linear probing
+ *  in a pair of parallel arrays. Unlike a HashSet of Long, adding or looking up
+ *  a key never boxes it, and the set never allocates once it has reached its
+ *  working size.
+ *
+ *  The table doubles when it becomes half full, so add and contains take
+ *  constant expected time. Keys are scrambled with the same 64-bit mixing
+ *  function as LongIntHashMap before probing, and clear() takes constant time
+ *  in the same way.
+ */
+
+final class LongHashSet {
+    private long[]    keys;
+    private int[]     stamp;    // stamp[i] == epoch: slot i is in use
+    private int       epoch;    // current generation of the table
+    private int       n;        // number of keys
+    private int       mask;     // table length minus one
+
+    /**
+     * Initializes an empty set sized for the given number of keys.
+     *
+     * @param expected the number of keys expected
+     */
+    LongHashSet(int expected) {
+        int m = 16;
+        while (m < 2 * expected)
+            m <<= 1;
+        allocate(m);
+    }
+
+    private void allocate(int m) {
+        keys  = new long[m];
+        stamp = new int[m];
+        epoch = 1;
+        mask  = m - 1;
+        n     = 0;
+    }
+
+    // spread the bits of the key over the low bits used for probing
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Returns the number of keys in this set.
+     *
+     * @return the number of keys
+     */
+    int size() {
+        return n;
+    }
+
+    /**
+     * Does this set contain the key?
+     *
+     * @param  key the key
+     * @return true if the key is in this set. False otherwise
+     */
+    boolean contains(long key) {
+        for (int i = hash(key) & mask; stamp[i] == epoch; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the key to this set, with a single probe sequence.
+     *
+     * @param  key the key
+     * @return true if the key was added. False if it was already in this set
+     */
+    boolean add(long key) {
+        if (2 * (n + 1) > keys.length)
+            resize(2 * keys.length);
+
+        int i = hash(key) & mask;
+        for (; stamp[i] == epoch; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return false;
+        }
+        stamp[i] = epoch;
+        keys[i] = key;
+        n++;
+        return true;
+    }
+
+    /**
+     * Removes every key from this set, keeping its capacity.
+     */
+    void clear() {
+        // a new epoch frees every slot at once; only after 2^32 clears do
+        // the stamps have to be wiped
+        if (++epoch == 0) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        n = 0;
+    }
+
+    private void resize(int m) {
+        long[]    oldKeys = keys;
+        int[]     oldStamp = stamp;
+        int       oldEpoch = epoch;
+        allocate(m);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStamp[i] == oldEpoch)
+                add(oldKeys[i]);
+        }
+    }
+}
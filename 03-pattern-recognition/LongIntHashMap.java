@@ -0,0 +1,137 @@
+/******************************************************************************
+ *  Compilation:  javac LongIntHashMap.java
+ *  Execution:    none
+ *  Dependencies:
+ *
+ *  A symbol table from long keys to int values using open addressing.
+ *
+ ******************************************************************************/
+
+import java.util.Arrays;
+
+
+/**
+ *  LongIntHashMap is a symbol table with primitive long keys and int values,
+ *  implemented with linear probing in parallel arrays. Unlike a HashMap of
+ *  Long to Integer, it never boxes a key or a value and never allocates once
+ *  it has reached its working size, which makes it suitable for the inner
+ *  loops of the collinear engines. It is meant to be cleared and reused.
+ *
+ *  The table doubles when it becomes half full, so put and get take constant
+ *  expected time. Keys are scrambled with a 64-bit mixing function before
+ *  probing, so clustered keys such as packed coordinates spread evenly.
+ *
+ *  Slots are marked in use with the generation of the table, so clear() takes
+ *  constant time: it starts a new generation instead of wiping the table, and
+ *  a map cleared once per origin costs nothing for its size.
+ */
+
+final class LongIntHashMap {
+    private long[]    keys;
+    private int[]     vals;
+    private int[]     stamp;    // stamp[i] == epoch: slot i is in use
+    private int       epoch;    // current generation of the table
+    private int       n;        // number of key-value pairs
+    private int       mask;     // table length minus one
+
+    /**
+     * Initializes an empty map sized for the given number of keys.
+     *
+     * @param expected the number of keys expected
+     */
+    LongIntHashMap(int expected) {
+        int m = 16;
+        while (m < 2 * expected)
+            m <<= 1;
+        allocate(m);
+    }
+
+    private void allocate(int m) {
+        keys  = new long[m];
+        vals  = new int[m];
+        stamp = new int[m];
+        epoch = 1;
+        mask  = m - 1;
+        n     = 0;
+    }
+
+    // spread the bits of the key over the low bits used for probing
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Returns the number of keys in this map.
+     *
+     * @return the number of keys
+     */
+    int size() {
+        return n;
+    }
+
+    /**
+     * Returns the value associated with the key.
+     *
+     * @param  key the key
+     * @param  missing the value to return if the key is not in this map
+     * @return the value of the key, or missing
+     */
+    int get(long key, int missing) {
+        for (int i = hash(key) & mask; stamp[i] == epoch; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return vals[i];
+        }
+        return missing;
+    }
+
+    /**
+     * Associates the value with the key, replacing any old value.
+     *
+     * @param key the key
+     * @param val the value
+     */
+    void put(long key, int val) {
+        if (2 * (n + 1) > keys.length)
+            resize(2 * keys.length);
+
+        int i = hash(key) & mask;
+        for (; stamp[i] == epoch; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                vals[i] = val;
+                return;
+            }
+        }
+        stamp[i] = epoch;
+        keys[i] = key;
+        vals[i] = val;
+        n++;
+    }
+
+    /**
+     * Removes every key from this map, keeping its capacity.
+     */
+    void clear() {
+        // a new epoch frees every slot at once; only after 2^32 clears do
+        // the stamps have to be wiped
+        if (++epoch == 0) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        n = 0;
+    }
+
+    private void resize(int m) {
+        long[]    oldKeys = keys;
+        int[]     oldVals = vals;
+        int[]     oldStamp = stamp;
+        int       oldEpoch = epoch;
+        allocate(m);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStamp[i] == oldEpoch)
+                put(oldKeys[i], oldVals[i]);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/******************************************************************************
+ *  Compilation:  javac OriginSweep.java
+ *  Execution:    none
+ *  Dependencies: SegmentSink.java
+ *
+ *  Sort the indices of a set of points by their slope with respect to one of
+ *  them, using exact integer comparisons.
+ *
+ ******************************************************************************/
+
+
+/**
+ *  OriginSweep is the inner loop of the sorting-based collinear engines, on
+ *  points stored as two parallel arrays of coordinates instead of an array of
+ *  Point objects. Given an origin p, sort(p) arranges the indices of all the
+ *  other points so that points with the same slope with respect to p are next
+ *  to each other, and sameSlope() tells whether two of them have the same slope.
+ *
+ *  Slopes are never computed. The direction from p to each point q is stored
+ *  as a pair (dx, dy) with its sign fixed so that dx > 0, or dx == 0 and dy > 0,
+ *  so points on either side of p on the same line get parallel directions, and
+ *  two directions are compared by the sign of their cross product, which is
+ *  exact. The indices are sorted with a 3-way quicksort specialized for int
+ *  arrays, which puts all the points of a line through p in one partition
+ *  without comparing them any further, and never touches a Point object.
+ *
+ *  The order of the points within a run of equal slopes is unspecified; since
+ *  the engines keep their points in natural order, they compare indices to find
+ *  the extreme points of a run.
+ *
+ *  An OriginSweep keeps its scratch arrays between calls, so one instance per
+ *  thread can be reused for every origin.
+ */
+
+final class OriginSweep {
+    private static final int CUTOFF = 8;    // insertion sort below this size
+
+    private int[] index;    // indices of the points other than the origin
+    private int[] dx;       // dx[q]: normalized x-direction from origin to q
+    private int[] dy;       // dy[q]: normalized y-direction from origin to q
+    private int   size;     // number of indices sorted by the last call
+
+    /**
+     * Initializes a sweep with room for n points.
+     *
+     * @param n the number of points
+     */
+    OriginSweep(int n) {
+        index = new int[Math.max(n, 1)];
+        dx    = new int[Math.max(n, 1)];
+        dy    = new int[Math.max(n, 1)];
+    }
+
+    /**
+     * Sorts the indices of the first n points, except origin, by their slope
+     * with respect to the origin.
+     *
+     * @param xs the x-coordinates of the points
+     * @param ys the y-coordinates of the points
+     * @param n the number of points
+     * @param origin the index of the origin
+     */
+    void sort(int[] xs, int[] ys, int n, int origin) {
+        if (index.length < n) {
+            index = new int[n];
+            dx    = new int[n];
+            dy    = new int[n];
+        }
+
+        int x0 = xs[origin];
+        int y0 = ys[origin];
+        size = 0;
+        for (int q = 0; q < n; q++) {
+            if (q == origin)
+                continue;
+            int ddx = xs[q] - x0;
+            int ddy = ys[q] - y0;
+            if (ddx < 0 || (ddx == 0 && ddy < 0)) {
+                ddx = -ddx;
+                ddy = -ddy;
+            }
+            dx[q] = ddx;
+            dy[q] = ddy;
+            index[size++] = q;
+        }
+        sort(0, size - 1);
+    }
+
+    /**
+     * Sorts the first n points by their slope with respect to the origin, and
+     * reports the segments of 4 or more points that the origin owns, as pairs
+     * of indices: those whose other points all have greater indices than the
+     * origin. When the points are in natural order, each maximal segment is
+     * reported by exactly one origin: its smallest point.
+     *
+     * @param xs the x-coordinates of the points
+     * @param ys the y-coordinates of the points
+     * @param n the number of points
+     * @param origin the index of the origin
+     * @param out the consumer of the (origin, last point) pairs
+     */
+    void sortOwned(int[] xs, int[] ys, int n, int origin, SegmentSink out) {
+        sort(xs, ys, n, origin);
+        int i = 0;
+        while (i < size) {
+            int q     = index[i];
+            int first = q;
+            int last  = q;
+            int j     = i + 1;
+            for (; j < size && sameSlope(q, index[j]); j++) {
+                first = Math.min(first, index[j]);
+                last  = Math.max(last, index[j]);
+            }
+            if (j - i >= 3 && origin < first)
+                out.segment(origin, last);
+            i = j;
+        }
+    }
+
+    /**
+     * Returns the number of indices sorted by the last call to sort.
+     *
+     * @return the number of points other than the origin
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the i-th point in slope order.
+     *
+     * @param  i the rank in slope order
+     * @return the index of the point
+     */
+    int index(int i) {
+        return index[i];
+    }
+
+    /**
+     * Returns the normalized x-direction from the origin to the point q.
+     *
+     * @param  q the index of a point
+     * @return the x-direction
+     */
+    int dx(int q) {
+        return dx[q];
+    }
+
+    /**
+     * Returns the normalized y-direction from the origin to the point q.
+     *
+     * @param  q the index of a point
+     * @return the y-direction
+     */
+    int dy(int q) {
+        return dy[q];
+    }
+
+    /**
+     * Do the points q and r have the same slope with respect to the origin?
+     *
+     * @param  q the index of a point
+     * @param  r the index of another point
+     * @return true if the origin, q and r are collinear. False otherwise
+     */
+    boolean sameSlope(int q, int r) {
+        return compare(q, r) == 0;
+    }
+
+    // sign of slope(q) - slope(r); with dx >= 0 on both sides the cross
+    // product has the right sign, including for vertical directions
+    private int compare(int q, int r) {
+        long cross = (long) dy[q] * dx[r] - (long) dy[r] * dx[q];
+        return Long.signum(cross);
+    }
+
+    // 3-way quicksort of index[lo..hi]
+    private void sort(int lo, int hi) {
+        while (hi - lo >= CUTOFF) {
+            // median of three as the pivot, moved to index[lo]
+            int mid = lo + (hi - lo) / 2;
+            if (compare(index[mid], index[lo]) < 0) exch(mid, lo);
+            if (compare(index[hi], index[lo]) < 0)  exch(hi, lo);
+            if (compare(index[hi], index[mid]) < 0) exch(hi, mid);
+            exch(lo, mid);
+
+            int v  = index[lo];
+            int lt = lo;
+            int gt = hi;
+            int i  = lo + 1;
+            while (i <= gt) {
+                int cmp = compare(index[i], v);
+                if      (cmp < 0) exch(lt++, i++);
+                else if (cmp > 0) exch(i, gt--);
+                else              i++;
+            }
+
+            // recurse into the smaller side, loop on the larger one
+            if (lt - lo < hi - gt) {
+                sort(lo, lt - 1);
+                lo = gt + 1;
+            } else {
+                sort(gt + 1, hi);
+                hi = lt - 1;
+            }
+        }
+
+        // insertion sort for small subarrays
+        for (int i = lo + 1; i <= hi; i++) {
+            int v = index[i];
+            int j = i;
+            while (j > lo && compare(v, index[j - 1]) < 0) {
+                index[j] = index[j - 1];
+                j--;
+            }
+            index[j] = v;
+        }
+    }
+
+    private void exch(int i, int j) {
+        int t    = index[i];
+        index[i] = index[j];
+        index[j] = t;
+    }
+}
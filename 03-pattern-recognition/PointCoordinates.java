@@ -0,0 +1,121 @@
+/******************************************************************************
+ *  Compilation:  javac PointCoordinates.java
+ *  Execution:    none
+ *  Dependencies: Point.java
+ *
+ *  Recover the integer coordinates of a Point.
+ *
+ ******************************************************************************/
+
+
+/**
+ *  The Point data type of this assignment keeps its coordinates private. The
+ *  engines that work on primitive coordinates use this class to read them
+ *  back, once per point, before doing any real work, through the methods of
+ *  the Point API only: slopeTo() and compareTo().
+ *
+ *  The slopes from a point (x, y) to (0, 0) and to (0, 1) are y / x and
+ *  (y - 1) / x, so their difference is 1 / x, and x and y follow with a few
+ *  floating-point operations. That is exact for any coordinates the
+ *  assignment allows, and the result is checked with compareTo(); if it is
+ *  wrong, the coordinates are found by binary search on the order of
+ *  compareTo() instead (y first, then x), with 64 comparisons.
+ */
+
+final class PointCoordinates {
+    private static final Point ORIGIN = new Point(0, 0);
+    private static final Point ABOVE  = new Point(0, 1);
+    private static final Point RIGHT  = new Point(1, 0);
+
+    // this class should not be instantiated
+    private PointCoordinates() { }
+
+    /**
+     * Copies the coordinates of the given points into xs and ys.
+     *
+     * @param  points the points
+     * @param  xs the array that receives the x-coordinates
+     * @param  ys the array that receives the y-coordinates
+     * @throws NullPointerException if any point is null
+     */
+    static void extract(Point[] points, int[] xs, int[] ys) {
+        for (int i = 0; i < points.length; i++) {
+            long c = coordinates(points[i]);
+            xs[i] = x(c);
+            ys[i] = y(c);
+        }
+    }
+
+    /**
+     * Returns the coordinates of the point, x in the high 32 bits and y in
+     * the low 32 bits.
+     *
+     * @param  point the point
+     * @return the packed coordinates
+     * @throws NullPointerException if the point is null
+     */
+    static long coordinates(Point point) {
+        double toOrigin = point.slopeTo(ORIGIN);
+        double toAbove  = point.slopeTo(ABOVE);
+        long   x;
+        long   y;
+        if (Double.isInfinite(toOrigin) || Double.isInfinite(toAbove)) {
+            // the point is on the line x = 0, and its slope to (1, 0) is -y
+            x = 0;
+            y = Math.round(-point.slopeTo(RIGHT));
+        } else {
+            x = Math.round(1 / (toOrigin - toAbove));
+            y = Math.round(toOrigin * x);
+        }
+
+        if (x == (int) x && y == (int) y && point.compareTo(new Point((int) x, (int) y)) == 0)
+            return pack((int) x, (int) y);
+        return search(point);
+    }
+
+    // the coordinates of the point by binary search on the order of
+    // compareTo(): no point with a greater y precedes (Integer.MAX_VALUE, y)
+    private static long search(Point point) {
+        long lo = Integer.MIN_VALUE;
+        long hi = Integer.MAX_VALUE;
+        while (lo < hi) {
+            long mid = (lo + hi) >> 1;
+            if (point.compareTo(new Point(Integer.MAX_VALUE, (int) mid)) <= 0) hi = mid;
+            else                                                                 lo = mid + 1;
+        }
+        int y = (int) lo;
+
+        lo = Integer.MIN_VALUE;
+        hi = Integer.MAX_VALUE;
+        while (lo < hi) {
+            long mid = (lo + hi) >> 1;
+            if (point.compareTo(new Point((int) mid, y)) <= 0) hi = mid;
+            else                                               lo = mid + 1;
+        }
+        return pack((int) lo, y);
+    }
+
+    private static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the x-coordinate of packed coordinates.
+     *
+     * @param  c the coordinates, as returned by coordinates()
+     * @return the x-coordinate
+     */
+    static int x(long c) {
+        return (int) (c >>> 32);
+    }
+
+    /**
+     * Returns the y-coordinate of packed coordinates.
+     *
+     * @param  c the coordinates, as returned by coordinates()
+     * @return the y-coordinate
+     */
+    static int y(long c) {
+        return (int) c;
+    }
+}
@@ -0,0 +1,235 @@
+/******************************************************************************
+ *  Compilation:  javac-algs4 PointFile.java
+ *  Execution:    java-algs4 PointFile input.txt output.bin
+ *  Dependencies: TokenReader.java StdOut.java
+ *
+ *  A binary file format for sets of points, read through a memory mapping,
+ *  and a converter from the text format of the collinear clients.
+ *
+ *  A point file is a header of two 32-bit big-endian ints, the magic number
+ *  0x50545331 ("PTS1") and the number of points N, followed by N pairs of
+ *  32-bit big-endian ints (x, y).
+ *
+ * Usage:
+ *  % java PointFile input8.txt input8.bin
+ *  8 points written to input8.bin
+ *
+ ******************************************************************************/
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import edu.princeton.cs.algs4.StdOut;
+
+
+/**
+ *  PointFile reads and writes sets of points in a compact binary format, for
+ *  inputs where parsing the text format of the collinear clients dominates
+ *  the running time. A point file is read by mapping it into memory and
+ *  copying the coordinates straight from the mapping into two int arrays,
+ *  without decoding any text and without creating a Point per coordinate pair.
+ *
+ *  The file is mapped in chunks of at most 256 MiB, so files with more points
+ *  than fit in a single mapping can be read too.
+ *
+ *  load() detects the format from the magic number, so the clients can take
+ *  either a text or a binary file, and read either into the two arrays of
+ *  coordinates. The main method converts a text file to a point file.
+ *
+ *  PointFile throws an IllegalArgumentException if a file cannot be opened or
+ *  is not a well-formed point file, and an UncheckedIOException if reading or
+ *  writing fails once it is open.
+ */
+
+public final class PointFile {
+    /**
+     * The magic number at the start of every point file: "PTS1" in ASCII.
+     */
+    public static final int MAGIC = 0x50545331;
+
+    private static final int HEADER = 8;            // bytes before the points
+    private static final int CHUNK  = 1 << 28;      // bytes mapped at a time
+
+    private final int[] xs;
+    private final int[] ys;
+
+    private PointFile(int[] xs, int[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    /**
+     * Is the given file a point file? Only the magic number is checked.
+     *
+     * @param  filename the name of the file
+     * @return true if the file starts with the magic number. False otherwise
+     */
+    public static boolean isPointFile(String filename) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filename))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the point file with the given name through a memory mapping.
+     *
+     * @param  filename the name of the file
+     * @return the points of the file
+     * @throws IllegalArgumentException if the file cannot be opened or is not a
+     *         point file
+     */
+    public static PointFile read(String filename) {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("could not open " + filename, e);
+        }
+
+        try (FileChannel ch = channel) {
+            long size = ch.size();
+            if (size < HEADER)
+                throw new IllegalArgumentException(filename + " is not a point file");
+            IntBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).asIntBuffer();
+            int n = header.get(1);
+            if (header.get(0) != MAGIC || n < 0 || size != HEADER + 8L * n)
+                throw new IllegalArgumentException(filename + " is not a point file");
+
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            // map whole points at a time, so a chunk never splits a pair
+            int perChunk = CHUNK / 8;
+            for (int first = 0; first < n; first += perChunk) {
+                int count = Math.min(perChunk, n - first);
+                IntBuffer ints = ch.map(FileChannel.MapMode.READ_ONLY,
+                                        HEADER + 8L * first, 8L * count).asIntBuffer();
+                for (int i = 0; i < count; i++) {
+                    xs[first + i] = ints.get(2 * i);
+                    ys[first + i] = ints.get(2 * i + 1);
+                }
+            }
+            return new PointFile(xs, ys);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the points (xs[i], ys[i]) to a point file with the given name,
+     * replacing its contents.
+     *
+     * @param  filename the name of the file
+     * @param  xs the x-coordinates of the points
+     * @param  ys the y-coordinates of the points
+     * @throws NullPointerException if either array is null
+     * @throws IllegalArgumentException if the arrays have different lengths
+     *         or if the file cannot be opened
+     */
+    public static void write(String filename, int[] xs, int[] ys) {
+        if (xs == null || ys == null)
+            throw new NullPointerException("null argument");
+        if (xs.length != ys.length)
+            throw new IllegalArgumentException("xs and ys differ in length");
+
+        FileOutputStream file;
+        try {
+            file = new FileOutputStream(filename);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("could not open " + filename, e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(xs.length);
+            for (int i = 0; i < xs.length; i++) {
+                out.writeInt(xs[i]);
+                out.writeInt(ys[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the points of a file in the text format of the collinear clients:
+     * N followed by N pairs of coordinates.
+     *
+     * @param  filename the name of the file
+     * @return the points of the file
+     * @throws IllegalArgumentException if the file cannot be opened
+     */
+    public static PointFile readText(String filename) {
+        TokenReader in = new TokenReader(filename);
+        int N = in.readInt();
+        int[] xs = new int[N];
+        int[] ys = new int[N];
+        for (int i = 0; i < N; i++) {
+            xs[i] = in.readInt();
+            ys[i] = in.readInt();
+        }
+        in.close();
+        return new PointFile(xs, ys);
+    }
+
+    /**
+     * Reads the points of a file in either format: a point file, through a
+     * memory mapping, or else the text format of the collinear clients.
+     *
+     * @param  filename the name of the file
+     * @return the points of the file
+     * @throws IllegalArgumentException if the file cannot be opened
+     */
+    public static PointFile load(String filename) {
+        if (isPointFile(filename))
+            return read(filename);
+        return readText(filename);
+    }
+
+    /**
+     * Returns the number of points.
+     *
+     * @return the number of points
+     */
+    public int size() {
+        return xs.length;
+    }
+
+    /**
+     * Returns the x-coordinates of the points. The array is shared, not
+     * copied, so it can be passed to the engines without another copy.
+     *
+     * @return the x-coordinates
+     */
+    public int[] xs() {
+        return xs;
+    }
+
+    /**
+     * Returns the y-coordinates of the points. The array is shared, not
+     * copied, so it can be passed to the engines without another copy.
+     *
+     * @return the y-coordinates
+     */
+    public int[] ys() {
+        return ys;
+    }
+
+    /**
+     * Converts a text file of points to a point file.
+     */
+    public static void main(String[] args) {
+        PointFile points = readText(args[0]);
+        write(args[1], points.xs(), points.ys());
+        StdOut.println(points.size() + " points written to " + args[1]);
+    }
+}
@@ -0,0 +1,32 @@
+/******************************************************************************
+ *  Compilation:  javac SegmentSink.java
+ *  Execution:    none
+ *  Dependencies:
+ *
+ *  A consumer of the line segments found by the collinear engines.
+ *
+ ******************************************************************************/
+
+
+/**
+ *  SegmentSink receives the line segments found by the collinear engines as
+ *  they are found, instead of collecting them into an array of LineSegment.
+ *  Each segment is given by the indices of its two endpoints in the input: the
+ *  position of the point in the array of points, or in the coordinate arrays.
+ *
+ *  An engine calls segment() once for each segment, from the thread that runs
+ *  the engine, and never keeps the segments itself, so a sink that writes them
+ *  out (see BinarySegmentWriter) keeps the memory used by the search flat no
+ *  matter how many segments there are.
+ */
+
+public interface SegmentSink {
+
+    /**
+     * Receives the line segment between the p-th and the q-th input points.
+     *
+     * @param p the index in the input of one endpoint
+     * @param q the index in the input of the other endpoint
+     */
+    void segment(int p, int q);
+}
@@ -0,0 +1,192 @@
+/******************************************************************************
+ *  Compilation:  javac BidirectionalSearch.java
+ *  Execution:    none
+ *  Dependencies: Board.java Heuristic.java BucketQueue.java
+ *
+ *  Bidirectional heuristic search that meets in the middle (MM): one search
+ *  forward from the initial board and one backward from the goal.
+ *
+ ******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ *  BidirectionalSearch runs two best-first searches at once, forward from the
+ *  initial board to the goal with the given heuristic, and backward from the
+ *  goal to the initial board with the Manhattan distance to the initial
+ *  board (the other heuristics only estimate the distance to the goal). Each
+ *  step expands the best node of the direction whose best node is better.
+ *
+ *  Following MM (Holte et al., 2016), a node reached with g moves and
+ *  estimate h has priority max(g + h, 2g): no node is expanded past the
+ *  middle of a shortest path, so neither search goes deeper than half the
+ *  solution, where a unidirectional search would expand the whole last
+ *  half. Whenever a board reached by one search has been reached by the
+ *  other, the two paths join into a solution, and the cheapest one found is
+ *  the incumbent, of cost U.
+ *
+ *  The nodes of the first half of a shortest path, counted from the end a
+ *  search starts from, have priorities of at most the length of the path,
+ *  and until the two searches have met on the path, one of those nodes is
+ *  waiting to be expanded. So the smallest priority C of the two open lists
+ *  is a lower bound on the fewest moves, and the search stops as soon as
+ *  U <= C.
+ */
+
+final class BidirectionalSearch {
+    private final Board     initial;
+    private final Board     goal;
+    private final Direction forward;
+    private final Direction backward;
+
+    private int  best = Integer.MAX_VALUE;  // U: fewest moves found so far
+    private Node meetForward;               // the two halves of the incumbent
+    private Node meetBackward;
+
+    private static final class Node {
+        private final Board board;
+        private final Node  prev;
+        private final int   moves;
+        private final int   estimate;
+
+        Node(Board board, Node prev, int moves, int estimate) {
+            this.board    = board;
+            this.prev     = prev;
+            this.moves    = moves;
+            this.estimate = estimate;
+        }
+    }
+
+    // the state of the search in one direction
+    private static final class Direction {
+        private final Heuristic         heuristic;
+        private final Map<Board, Node>  reached = new HashMap<>();  // best node of each board
+        private final BucketQueue<Node> open    = new BucketQueue<>();
+
+        Direction(Heuristic heuristic) {
+            this.heuristic = heuristic;
+        }
+    }
+
+    // the Manhattan distance to a given board, updated in O(1) on a move
+    private static final class ManhattanTo implements Heuristic {
+        private final int   n;
+        private final int[] target;     // target[t]: index of tile t
+
+        ManhattanTo(Board board) {
+            n      = board.dimension();
+            target = new int[n * n];
+            for (int index = 0; index < n * n; index++)
+                target[board.tileAt(index)] = index;
+        }
+
+        public int estimate(Board board) {
+            int sum = 0;
+            for (int index = 0; index < n * n; index++) {
+                int tile = board.tileAt(index);
+                if (0 < tile) sum += distance(index, target[tile]);
+            }
+            return sum;
+        }
+
+        public int update(Board board, int estimate, int from, int to) {
+            int home = target[board.tileAt(to)];
+            return estimate + distance(to, home) - distance(from, home);
+        }
+
+        private int distance(int a, int b) {
+            return Math.abs(a / n - b / n) + Math.abs(a % n - b % n);
+        }
+    }
+
+    private BidirectionalSearch(Board initial, Heuristic heuristic) {
+        int n = initial.dimension();
+        int[][] blocks = new int[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                blocks[i][j] = (i * n + j + 1) % (n * n);
+
+        this.initial  = initial;
+        this.goal     = new Board(blocks);
+        this.forward  = new Direction(heuristic);
+        this.backward = new Direction(new ManhattanTo(initial));
+    }
+
+    /**
+     * Returns a shortest sequence of boards from the initial board to the
+     * goal.
+     *
+     * @param  initial the initial board, which must be solvable
+     * @param  heuristic the heuristic of the forward search, which must be
+     *         admissible
+     * @return the boards of a shortest solution, from the initial board to the
+     *         goal
+     */
+    static List<Board> solve(Board initial, Heuristic heuristic) {
+        return new BidirectionalSearch(initial, heuristic).run();
+    }
+
+    private List<Board> run() {
+        List<Board> solution = new ArrayList<>();
+        if (initial.isGoal()) {
+            solution.add(initial);
+            return solution;
+        }
+
+        add(forward, new Node(initial, null, 0, forward.heuristic.estimate(initial)));
+        add(backward, new Node(goal, null, 0, backward.heuristic.estimate(goal)));
+        while (!forward.open.isEmpty() && !backward.open.isEmpty()) {
+            int f = forward.open.minF();
+            int b = backward.open.minF();
+            if (best <= Math.min(f, b))
+                break;
+            expand(f <= b ? forward : backward);
+        }
+
+        // the forward half from the initial board, then the backward half
+        // from the board after the meeting point to the goal
+        for (Node node = meetForward; node != null; node = node.prev)
+            solution.add(node.board);
+        Collections.reverse(solution);
+        for (Node node = meetBackward.prev; node != null; node = node.prev)
+            solution.add(node.board);
+        return solution;
+    }
+
+    // record the node as the best one of its board in the given direction,
+    // and join it with the best node of the board in the other direction
+    private void add(Direction direction, Node node) {
+        direction.reached.put(node.board, node);
+        int h = node.estimate;
+        direction.open.insert(node, Math.max(node.moves + h, 2 * node.moves), h);
+
+        Direction opposite = direction == forward ? backward : forward;
+        Node      other    = opposite.reached.get(node.board);
+        if (other != null && node.moves + other.moves < best) {
+            best         = node.moves + other.moves;
+            meetForward  = direction == forward ? node : other;
+            meetBackward = direction == forward ? other : node;
+        }
+    }
+
+    // expand the best node of the given direction that is not stale
+    private void expand(Direction direction) {
+        Node node = direction.open.delMin();
+        if (direction.reached.get(node.board) != node)
+            return;
+
+        int to = node.board.blankIndex();
+        for (Board b : node.board.neighbors()) {
+            Node old = direction.reached.get(b);
+            if (old != null && old.moves <= node.moves + 1)
+                continue;
+            int h = direction.heuristic.update(b, node.estimate, b.blankIndex(), to);
+            add(direction, new Node(b, node, node.moves + 1, h));
+        }
+    }
+}
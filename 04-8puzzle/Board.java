@@ -4,30 +4,165 @@ import java.util.Stack;
 import edu.princeton.cs.algs4.In;
 
 public class Board {
-    private int[][] board;
-    private int     N;
+    // boards up to 4-by-4 keep their N^2 <= 16 tiles as 4-bit nibbles of a
+    // single long, tile i in bits 4i..4i+3 (row-major order); larger boards
+    // keep them in a char[], since N^2 - 1 does not fit in a byte for N > 16
+    private static final int MAX_PACKED = 4;
+
+    // the fields are only ever modified by slideInPlace(), on a private copy
+    // made by copy() for a search that moves and unmoves tiles in place; every
+    // other board is immutable
+    private final int    N;
+    private long         packed;    // the tiles, if N <= MAX_PACKED
+    private char[]       tiles;     // the tiles, if N > MAX_PACKED; else null
+    private int          blank;     // index of the blank square
+
+    // a move changes the position of a single tile, so the heuristics are
+    // computed once for a board read from input and then updated in O(1)
+    private int          manhattan;
+    private int          hamming;
+
+    // Zobrist hash: the xor of a random key for each (square, tile) pair,
+    // updated by a move with two xors; the keys are derived from the pair
+    // by a mixing function instead of a table, so any N is supported
+    private long         zobrist;
 
     // construct a board from an N-by-N array of blocks
     // (where blocks[i][j] = block in row i, column j)
     public Board(int[][] blocks) {
-        N     = blocks[0].length;
-        board = new int[N][N];
+        N = blocks[0].length;
 
+        long   p = 0;
+        char[] t = N > MAX_PACKED ? new char[N * N] : null;
+        int    b = 0;
         for (int i = 0; i < N; i++) {
-            for (int j = 0; j < N; j++)
-                board[i][j] = blocks[i][j];
+            for (int j = 0; j < N; j++) {
+                int index = i * N + j;
+                if (blocks[i][j] == 0)
+                    b = index;
+                if (t == null)
+                    p |= (long) blocks[i][j] << (4 * index);
+                else
+                    t[index] = (char) blocks[i][j];
+            }
         }
+        packed    = p;
+        tiles     = t;
+        blank     = b;
+        manhattan = computeManhattan();
+        hamming   = computeHamming();
+        zobrist   = computeZobrist();
+    }
+
+    private Board(int n, long packed, char[] tiles, int blank) {
+        this.N         = n;
+        this.packed    = packed;
+        this.tiles     = tiles;
+        this.blank     = blank;
+        this.manhattan = computeManhattan();
+        this.hamming   = computeHamming();
+        this.zobrist   = computeZobrist();
+    }
+
+    private Board(int n, long packed, char[] tiles, int blank,
+                  int manhattan, int hamming, long zobrist) {
+        this.N         = n;
+        this.packed    = packed;
+        this.tiles     = tiles;
+        this.blank     = blank;
+        this.manhattan = manhattan;
+        this.hamming   = hamming;
+        this.zobrist   = zobrist;
+    }
+
+    // tile at the given row-major index; 0 for the blank
+    int tileAt(int index) {
+        if (tiles == null)
+            return (int) (packed >>> (4 * index)) & 0xF;
+        return tiles[index];
+    }
 
+    // row-major index of the blank square
+    int blankIndex() {
+        return blank;
     }
 
-    private int[][] deepCopy(int[][] b, int n) {
-        int[][] res = new int[n][n];
+    // board obtained by sliding the tile at the given index, which must be
+    // next to the blank, into the blank square
+    Board slide(int index) {
+        Board board = copy();
+        board.slideInPlace(index);
+        return board;
+    }
+
+    // a copy of this board that can be slid in place
+    Board copy() {
+        char[] t = tiles == null ? null : tiles.clone();
+        return new Board(N, packed, t, blank, manhattan, hamming, zobrist);
+    }
+
+    // slide the tile at the given index, which must be next to the blank,
+    // into the blank square of this board; sliding the tile back from the old
+    // blank index undoes the move. Only for boards made by copy()
+    void slideInPlace(int index) {
+        int tile = tileAt(index);
+        int goal = tile - 1;
 
-        for (int i = 0; i < n; i++)
-            for (int j = 0; j < n; j++)
-                res[i][j] = b[i][j];
+        // only the distance of the moved tile to its goal changes, by 1
+        manhattan += distance(blank, goal) - distance(index, goal);
+        hamming   += (blank != goal ? 1 : 0) - (index != goal ? 1 : 0);
+        zobrist   ^= key(index, tile) ^ key(blank, tile);
+
+        if (tiles == null) {
+            // the blank nibble is 0, so the tile is or-ed into it
+            packed = (packed & ~(0xFL << (4 * index))) | ((long) tile << (4 * blank));
+        } else {
+            tiles[blank] = (char) tile;
+            tiles[index] = 0;
+        }
+        blank = index;
+    }
 
-        return res;
+    // Manhattan distance between the squares of row-major indices a and b
+    private int distance(int a, int b) {
+        return Math.abs(a / N - b / N) + Math.abs(a % N - b % N);
+    }
+
+    // board obtained by exchanging the tiles at the indices i and j
+    private Board swap(int i, int j) {
+        int a = tileAt(i);
+        int b = tileAt(j);
+        if (tiles == null) {
+            long p = packed & ~(0xFL << (4 * i)) & ~(0xFL << (4 * j));
+            p |= ((long) b << (4 * i)) | ((long) a << (4 * j));
+            return new Board(N, p, null, blank == i ? j : blank == j ? i : blank);
+        }
+        char[] t = tiles.clone();
+        t[i] = (char) b;
+        t[j] = (char) a;
+        return new Board(N, 0, t, blank == i ? j : blank == j ? i : blank);
+    }
+
+    // Zobrist key of the given tile on the square of the given index
+    private static long key(int index, int tile) {
+        long z = ((long) index << 32 | tile) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private long computeZobrist() {
+        long z = 0;
+        for (int index = 0; index < N * N; index++) {
+            int tile = tileAt(index);
+            if (0 < tile) z ^= key(index, tile);
+        }
+        return z;
+    }
+
+    // 64-bit Zobrist hash of this board; equal boards have equal hashes
+    long zobrist() {
+        return zobrist;
     }
 
     // board dimension N
@@ -37,56 +172,88 @@ public class Board {
 
     // number of blocks out of place
     public int hamming() {
+        return hamming;
+    }
+
+    private int computeHamming() {
         int sum = 0;
 
-        for (int i = 0; i < N; i++) {
-            for (int j = 0; j < N; j++) {
-                if ((i == (N - 1)) && (j == (N - 1))) return sum;
-                if (board[i][j] != (i * N + (j + 1))) sum++;
-            }
+        for (int index = 0; index < N * N; index++) {
+            int tile = tileAt(index);
+            if (0 < tile && tile != index + 1) sum++;
         }
         return sum;
     }
 
     // sum of Manhattan distances between blocks and goal
     public int manhattan() {
+        return manhattan;
+    }
+
+    private int computeManhattan() {
         int sum = 0;
-        int offset_row;
-        int offset_col;
 
-        for (int i = 0; i < N; i++) {
-            for (int j = 0; j < N; j++) {
-                if (0 < board[i][j]) {
-                    offset_row = (board[i][j] - 1) / N;
-                    offset_col = board[i][j] - offset_row * N - 1;
-                    sum += Math.abs(i - offset_row) + Math.abs(j - offset_col);
-                }
-            }
+        for (int index = 0; index < N * N; index++) {
+            int tile = tileAt(index);
+            if (0 < tile) sum += distance(index, tile - 1);
         }
         return sum;
     }
 
     // is this board the goal board?
     public boolean isGoal() {
-        return (manhattan() == 0);
+        return (manhattan == 0);
+    }
+
+    // can the goal board be reached from this board? By the parity of the
+    // number of inversions among the tiles (pairs that are in the wrong order
+    // in row-major order): a move changes it by N - 1 or not at all, and
+    // moves the blank one row or not at all. For odd N the inversions must be
+    // even; for even N, the inversions plus the row of the blank (from 0 at
+    // the top) must be odd, as they are for the goal board
+    boolean isSolvable() {
+        int[] a = new int[N * N - 1];
+        int   k = 0;
+        for (int index = 0; index < N * N; index++) {
+            if (index != blank) a[k++] = tileAt(index);
+        }
+        long inversions = inversions(a, new int[a.length], 0, a.length);
+
+        if (N % 2 == 1)
+            return inversions % 2 == 0;
+        return (inversions + blank / N) % 2 == 1;
     }
 
-    private void swap(int[][] b, int i, int j, int m, int n) {
-        int aux = b[i][j];
-        b[i][j] = b[m][n];
-        b[m][n] = aux;
+    // merge sort a[lo..hi-1], returning the number of inversions it had
+    private static long inversions(int[] a, int[] aux, int lo, int hi) {
+        if (hi - lo < 2)
+            return 0;
+        int  mid   = (lo + hi) >>> 1;
+        long count = inversions(a, aux, lo, mid) + inversions(a, aux, mid, hi);
+
+        System.arraycopy(a, lo, aux, lo, hi - lo);
+        int i = lo;
+        int j = mid;
+        for (int k = lo; k < hi; k++) {
+            if      (i == mid)          a[k] = aux[j++];
+            else if (j == hi)           a[k] = aux[i++];
+            else if (aux[j] < aux[i]) {
+                // aux[j] is smaller than every element left in the left half
+                count += mid - i;
+                a[k] = aux[j++];
+            }
+            else                        a[k] = aux[i++];
+        }
+        return count;
     }
 
     // a board that is obtained by exchanging any pair of blocks
     public Board twin() {
-        int[][] b = deepCopy(board, N);
-
         for (int i = 0; i < N; i++) {
             for (int j = 0; j < N - 1; j++) {
-                if (b[i][j] * b[i][j + 1] != 0) {
-                    swap(b, i, j, i, j + 1);
-                    return new Board(b);
-                }
+                int index = i * N + j;
+                if (tileAt(index) * tileAt(index + 1) != 0)
+                    return swap(index, index + 1);
             }
         }
         return null;
@@ -99,60 +266,35 @@ public class Board {
         if (y.getClass() != this.getClass()) return false;
 
         Board that = (Board) y;
-        return (this.N == that.N) && Arrays.deepEquals(this.board, that.board);
+        return (this.N == that.N) && (this.zobrist == that.zobrist)
+            && (this.packed == that.packed) && Arrays.equals(this.tiles, that.tiles);
     }
 
-    // helper method to push neighbor board onto a stack
-    private void pushBoardOntoStack(Stack<Board> s, int x, int y, int m, int n) {
-        int[][] neighborBoard = deepCopy(board, N);
-        swap(neighborBoard, x, y, m, n);
-        s.push(new Board(neighborBoard));
+    // hash code consistent with equals
+    public int hashCode() {
+        return Long.hashCode(zobrist);
     }
 
     // all neighboring boards
     public Iterable<Board> neighbors() {
-        Stack<Board> boards     = new Stack<Board>();
-        boolean      blankFound = false;
+        Stack<Board> boards = new Stack<Board>();
+        int          i      = blank / N;
+        int          j      = blank % N;
 
-        for (int i = 0; i < N && !blankFound; i++) {
-            for (int j = 0; j < N; j++) {
-                if (board[i][j] == 0) {
-                    if (i > 0)     pushBoardOntoStack(boards, i - 1, j, i, j);
-                    if (j > 0)     pushBoardOntoStack(boards, i, j - 1, i, j);
-                    if (i < N - 1) pushBoardOntoStack(boards, i + 1, j, i, j);
-                    if (j < N - 1) pushBoardOntoStack(boards, i, j + 1, i, j);
-                    blankFound = true;
-                    break;
-                }
-            }
-        }
+        if (i > 0)     boards.push(slide(blank - N));
+        if (j > 0)     boards.push(slide(blank - 1));
+        if (i < N - 1) boards.push(slide(blank + N));
+        if (j < N - 1) boards.push(slide(blank + 1));
         return boards;
     }
 
     // string representation of this board (in the output format specified below)
-    // public String toString() {
-    //     StringBuilder s = new StringBuilder();
-    //     String NEW_LINE = System.getProperty("line.separator");
-
-    //     s.append(String.format("%d" + NEW_LINE, N));
-    //     for (int i = 0; i < N; i++) {
-    //         for (int j = 0; j < N; j++) {
-    //             if ((N / 100.0) > 1)
-    //                 s.append(String.format("%4d", board[i][j]));
-    //             else
-    //                 s.append(String.format("%3d", board[i][j]));
-    //         }
-
-    //         s.append(NEW_LINE);
-    //     }
-    //     return s.toString();
-    // }
     public String toString() {
         StringBuilder s = new StringBuilder();
         s.append(N + "\n");
         for (int i = 0; i < N; i++) {
             for (int j = 0; j < N; j++) {
-                s.append(String.format("%2d ", board[i][j]));
+                s.append(String.format("%2d ", tileAt(i * N + j)));
             }
             s.append("\n");
         }
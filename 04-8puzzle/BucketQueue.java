@@ -0,0 +1,153 @@
+/******************************************************************************
+ *  Compilation:  javac BucketQueue.java
+ *  Execution:    none
+ *  Dependencies: none
+ *
+ *  A priority queue for items with small nonnegative integer priorities.
+ *
+ ******************************************************************************/
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+
+/**
+ *  BucketQueue is the open list of A*: a priority queue of items keyed by
+ *  their f-cost, with ties broken by the smallest h-cost, and then by the
+ *  item inserted last. The costs of a slider puzzle are small integers, so
+ *  there is a bucket for each pair of costs, a stack of the items with those
+ *  costs, and insert and delMin take constant amortized time instead of the
+ *  logarithmic time of a binary heap.
+ *
+ *  Among the nodes of the smallest f-cost, those with the smallest h-cost
+ *  are the deepest ones, and the most recently generated of them are the
+ *  children of the node just expanded, so a search follows a path down to
+ *  the goal instead of expanding the other nodes of the same f-cost first.
+ *
+ *  The buckets grow as needed; the smallest f-cost is only searched for from
+ *  the one of the last removed item, so removing all items takes time
+ *  proportional to the number of items plus the largest cost.
+ */
+
+final class BucketQueue<Item> {
+    private Object[][][] items;     // items[f][h]: the stack of bucket (f, h)
+    private int[][]      sizes;     // sizes[f][h]: the size of that stack
+    private int[]        counts;    // counts[f]: the items of f-cost f
+    private int[]        lows;      // no bucket (f, h) with h < lows[f] has items
+    private int          n;         // number of items
+    private int          min;       // no f-cost less than min has items
+
+    /**
+     * Initializes an empty queue.
+     */
+    BucketQueue() {
+        items  = new Object[64][][];
+        sizes  = new int[64][];
+        counts = new int[64];
+        lows   = new int[64];
+    }
+
+    /**
+     * Returns true if the queue is empty.
+     *
+     * @return true if the queue is empty. False otherwise
+     */
+    boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Returns the number of items in the queue.
+     *
+     * @return the number of items
+     */
+    int size() {
+        return n;
+    }
+
+    /**
+     * Returns the smallest f-cost of the items in the queue.
+     *
+     * @return the smallest f-cost
+     * @throws NoSuchElementException if the queue is empty
+     */
+    int minF() {
+        if (n == 0)
+            throw new NoSuchElementException("queue underflow");
+        while (counts[min] == 0)
+            min++;
+        return min;
+    }
+
+    /**
+     * Adds an item with the given f-cost and h-cost.
+     *
+     * @param  item the item
+     * @param  f the f-cost of the item
+     * @param  h the h-cost of the item
+     * @throws IllegalArgumentException if a cost is negative
+     */
+    void insert(Item item, int f, int h) {
+        if (f < 0 || h < 0)
+            throw new IllegalArgumentException("negative cost");
+
+        if (f >= counts.length) {
+            int length = Math.max(2 * counts.length, f + 1);
+            items  = Arrays.copyOf(items, length);
+            sizes  = Arrays.copyOf(sizes, length);
+            counts = Arrays.copyOf(counts, length);
+            lows   = Arrays.copyOf(lows, length);
+        }
+        if (items[f] == null) {
+            items[f] = new Object[Math.max(16, h + 1)][];
+            sizes[f] = new int[items[f].length];
+        }
+        if (h >= items[f].length) {
+            int length = Math.max(2 * items[f].length, h + 1);
+            items[f] = Arrays.copyOf(items[f], length);
+            sizes[f] = Arrays.copyOf(sizes[f], length);
+        }
+
+        Object[] stack = items[f][h];
+        int      size  = sizes[f][h];
+        if (stack == null)
+            stack = items[f][h] = new Object[16];
+        else if (size == stack.length)
+            stack = items[f][h] = Arrays.copyOf(stack, 2 * size);
+        stack[size] = item;
+        sizes[f][h] = size + 1;
+
+        if (counts[f]++ == 0 || h < lows[f])
+            lows[f] = h;
+        if (n++ == 0 || f < min)
+            min = f;
+    }
+
+    /**
+     * Removes and returns the last inserted item of the smallest h-cost among
+     * those of the smallest f-cost.
+     *
+     * @return the item
+     * @throws NoSuchElementException if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    Item delMin() {
+        if (n == 0)
+            throw new NoSuchElementException("queue underflow");
+
+        while (counts[min] == 0)
+            min++;
+        int f = min;
+        int h = lows[f];
+        while (sizes[f][h] == 0)
+            h++;
+        lows[f] = h;
+
+        int  size = --sizes[f][h];
+        Item item = (Item) items[f][h][size];
+        items[f][h][size] = null;
+        counts[f]--;
+        n--;
+        return item;
+    }
+}
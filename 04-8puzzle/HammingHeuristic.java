@@ -0,0 +1,28 @@
+/******************************************************************************
+ *  Compilation:  javac HammingHeuristic.java
+ *  Execution:    none
+ *  Dependencies: Board.java Heuristic.java
+ *
+ *  The number of tiles out of place.
+ *
+ ******************************************************************************/
+
+
+/**
+ *  HammingHeuristic estimates the distance to the goal by the number of tiles
+ *  out of place: each of them has to move at least once. It is never better
+ *  than ManhattanHeuristic, and only there for comparison. A board keeps its
+ *  Hamming distance up to date as tiles move, so both estimate() and update()
+ *  take constant time.
+ */
+
+public final class HammingHeuristic implements Heuristic {
+
+    public int estimate(Board board) {
+        return board.hamming();
+    }
+
+    public int update(Board board, int estimate, int from, int to) {
+        return board.hamming();
+    }
+}
@@ -0,0 +1,269 @@
+/******************************************************************************
+ *  Compilation:  javac HashDistributedSearch.java
+ *  Execution:    none
+ *  Dependencies: Board.java Heuristic.java BucketQueue.java
+ *                TranspositionTable.java
+ *
+ *  Hash-distributed A* (HDA*): A* on several threads, each of which owns
+ *  the boards of a slice of the hash space.
+ *
+ ******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ *  HashDistributedSearch runs A* on a number of worker threads. Every board
+ *  belongs to the worker picked by its Zobrist hash, which is the only one
+ *  to keep it in its open list and transposition table, so the workers share
+ *  no data structure but their inboxes. A worker expands the best node of its
+ *  own open list and sends each child to the inbox of its owner, a lock-free
+ *  queue that any worker can add to.
+ *
+ *  The workers do not expand the nodes in global f-cost order, so the first
+ *  goal reached is not necessarily the closest one. It becomes the incumbent
+ *  solution of cost U, every node of f-cost at least U is discarded from
+ *  then on, and a goal of smaller cost replaces the incumbent. The search
+ *  ends when every open list and every inbox is empty: with an admissible
+ *  heuristic, a node of a shortest path whose f-cost is less than U would
+ *  still be in some open list or inbox otherwise, so U is the fewest moves.
+ *
+ *  That the open lists and inboxes are all empty is detected with a count of
+ *  tokens: every message in an inbox has one, and so has every worker that
+ *  is not idle. A worker takes a new token for each message it sends, gives
+ *  up the token of each message it receives, and gives up its own when it
+ *  runs out of work; an idle worker that receives a message takes over its
+ *  token instead. Only a worker holding a token can create one, so once the
+ *  count reaches zero it stays zero, and every worker stops.
+ *
+ *  An idle worker does not spin while it waits for messages: it parks, and
+ *  a worker that sends it a message unparks it, as does the worker that
+ *  brings the count of tokens to zero. A parked worker also wakes up on its
+ *  own every millisecond, so a wakeup is never lost for good.
+ *
+ *  The heuristic is called from all of the workers at the same time.
+ */
+
+final class HashDistributedSearch {
+    private static final long IDLE_NANOS = 1000000;     // longest park of an idle worker
+
+    private final Heuristic                  heuristic;
+    private final Worker[]                   workers;
+    private final AtomicLong                 tokens;
+    private final AtomicReference<Node>      incumbent = new AtomicReference<>();
+    private final AtomicReference<Throwable> failure   = new AtomicReference<>();
+
+    private static final class Node {
+        private final Board board;
+        private final Node  prev;
+        private final int   moves;
+        private final int   estimate;
+
+        Node(Board board, Node prev, int moves, int estimate) {
+            this.board    = board;
+            this.prev     = prev;
+            this.moves    = moves;
+            this.estimate = estimate;
+        }
+    }
+
+    private HashDistributedSearch(Heuristic heuristic, int threads) {
+        this.heuristic = heuristic;
+        this.workers   = new Worker[threads];
+        for (int i = 0; i < threads; i++)
+            workers[i] = new Worker();
+        // each worker starts with a token, and is not idle until it gives it up
+        this.tokens    = new AtomicLong(threads);
+    }
+
+    /**
+     * Returns a shortest sequence of boards from the initial board to the
+     * goal, searched for with the given number of threads.
+     *
+     * @param  initial the initial board, which must be solvable
+     * @param  heuristic the heuristic, which must be admissible
+     * @param  threads the number of worker threads
+     * @return the boards of a shortest solution, from the initial board to the
+     *         goal
+     * @throws IllegalArgumentException if threads is not positive
+     */
+    static List<Board> solve(Board initial, Heuristic heuristic, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive");
+        HashDistributedSearch search = new HashDistributedSearch(heuristic, threads);
+        return search.run(initial);
+    }
+
+    private List<Board> run(Board initial) {
+        Node root = new Node(initial, null, 0, heuristic.estimate(initial));
+        workers[owner(initial)].receive(root);
+
+        Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            threads[i] = new Thread(workers[i], "HDA*-" + i);
+            threads[i].start();
+        }
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) throw (RuntimeException) t;
+        if (t instanceof Error)            throw (Error) t;
+
+        // follow the chain back to the initial board
+        List<Board> solution = new ArrayList<>();
+        for (Node node = incumbent.get(); node != null; node = node.prev)
+            solution.add(node.board);
+        Collections.reverse(solution);
+        return solution;
+    }
+
+    // index of the worker that owns the board, from the high bits of its hash
+    // (the transposition tables index with the low bits)
+    private int owner(Board board) {
+        return (int) (((board.zobrist() >>> 32) * workers.length) >>> 32);
+    }
+
+    // cost of the incumbent solution, or Integer.MAX_VALUE if none yet
+    private int upperBound() {
+        Node best = incumbent.get();
+        return best == null ? Integer.MAX_VALUE : best.moves;
+    }
+
+    // make the goal node the incumbent, if it is cheaper than the incumbent
+    private void offer(Node goal) {
+        while (true) {
+            Node best = incumbent.get();
+            if (best != null && best.moves <= goal.moves)
+                return;
+            if (incumbent.compareAndSet(best, goal))
+                return;
+        }
+    }
+
+    // unpark every worker, so each sees that the search is over
+    private void wakeAll() {
+        for (Worker worker : workers)
+            LockSupport.unpark(worker.thread);
+    }
+
+    private final class Worker implements Runnable {
+        private final ConcurrentLinkedQueue<Node> inbox = new ConcurrentLinkedQueue<>();
+        private final BucketQueue<Node>           open  = new BucketQueue<>();
+        private final TranspositionTable          seen  = new TranspositionTable();
+
+        private volatile Thread  thread;    // the thread running this worker
+        private volatile boolean idle;      // has this worker given up its token?
+
+        public void run() {
+            thread = Thread.currentThread();
+            try {
+                work();
+            } catch (RuntimeException | Error e) {
+                // stop every worker: the search cannot finish without this one
+                failure.compareAndSet(null, e);
+                wakeAll();
+            }
+        }
+
+        private void work() {
+            boolean active = true;          // does this worker hold a token?
+            while (failure.get() == null) {
+                for (Node node = inbox.poll(); node != null; node = inbox.poll()) {
+                    if (active) {
+                        tokens.decrementAndGet();
+                    } else {
+                        active = true;
+                        idle   = false;
+                    }
+                    receive(node);
+                }
+
+                if (!active) {
+                    if (tokens.get() == 0)
+                        return;
+                    // idle was set before the inbox was found empty, so a
+                    // message sent since then comes with an unpark
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                    continue;
+                }
+
+                Node node = next();
+                if (node == null) {
+                    active = false;
+                    idle   = true;
+                    if (tokens.decrementAndGet() == 0)
+                        wakeAll();
+                    continue;
+                }
+                expand(node);
+            }
+        }
+
+        // add a node of this worker to its open list, unless it is a goal,
+        // it cannot beat the incumbent, or its board was reached more cheaply
+        void receive(Node node) {
+            if (node.moves + node.estimate >= upperBound())
+                return;
+            if (node.board.isGoal()) {
+                offer(node);
+                return;
+            }
+            if (seen.improve(node.board, node.moves))
+                open.insert(node, node.moves + node.estimate, node.estimate);
+        }
+
+        // the best node of the open list that is neither stale nor beaten by
+        // the incumbent, or null if there is none
+        private Node next() {
+            while (!open.isEmpty()) {
+                Node node = open.delMin();
+                if (node.moves > seen.get(node.board))
+                    continue;
+                if (node.moves + node.estimate >= upperBound())
+                    continue;
+                return node;
+            }
+            return null;
+        }
+
+        // send each child to its owner; the children of this worker skip the
+        // inbox
+        private void expand(Node node) {
+            int to    = node.board.blankIndex();
+            int bound = upperBound();
+            for (Board b : node.board.neighbors()) {
+                int h = heuristic.update(b, node.estimate, b.blankIndex(), to);
+                if (node.moves + 1 + h >= bound)
+                    continue;
+                Node child = new Node(b, node, node.moves + 1, h);
+                Worker owner = workers[owner(b)];
+                if (owner == this)
+                    receive(child);
+                else {
+                    tokens.incrementAndGet();
+                    owner.inbox.offer(child);
+                    if (owner.idle)
+                        LockSupport.unpark(owner.thread);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/******************************************************************************
+ *  Compilation:  javac Heuristic.java
+ *  Execution:    none
+ *  Dependencies: Board.java
+ *
+ *  A lower bound on the number of moves from a board to the goal board.
+ *
+ ******************************************************************************/
+
+
+/**
+ *  Heuristic is the estimate of the distance to the goal that Solver uses to
+ *  order its search. An estimate must never exceed the true number of moves
+ *  (it must be admissible) for the solutions to be shortest; the heuristics
+ *  in this directory are also consistent, so A* never has to expand a board
+ *  twice.
+ *
+ *  A search computes the estimate of the initial board with estimate() and
+ *  then derives the estimate of every board from that of its parent with
+ *  update(), which is told which tile moved. A heuristic that only depends on
+ *  a few tiles can then update its estimate in constant time; the default
+ *  update() just computes the estimate again.
+ */
+
+public interface Heuristic {
+
+    /**
+     * Returns a lower bound on the number of moves from the board to the goal.
+     *
+     * @param  board the board
+     * @return the estimate of the distance to the goal
+     */
+    int estimate(Board board);
+
+    /**
+     * Returns the estimate of the board, given the estimate of the board it
+     * was obtained from by sliding the tile that is now at index to from the
+     * index from (indices are in row-major order).
+     *
+     * @param  board the board after the move
+     * @param  estimate the estimate of the board before the move
+     * @param  from the index of the moved tile before the move
+     * @param  to the index of the moved tile after the move
+     * @return the estimate of the distance from the board to the goal
+     */
+    default int update(Board board, int estimate, int from, int to) {
+        return estimate(board);
+    }
+}
@@ -0,0 +1,110 @@
+/******************************************************************************
+ *  Compilation:  javac LinearConflictHeuristic.java
+ *  Execution:    none
+ *  Dependencies: Board.java Heuristic.java
+ *
+ *  The Manhattan distance plus two moves for every tile that has to leave
+ *  its goal row or column to let other tiles of that line pass.
+ *
+ ******************************************************************************/
+
+
+/**
+ *  LinearConflictHeuristic adds linear conflicts to the Manhattan distance.
+ *  Two tiles are in linear conflict when they are in the row (or column) of
+ *  both their goal squares, but in the opposite order: one of them has to
+ *  step out of the line and back, two moves the Manhattan distance does not
+ *  count. In each line, the tiles that can stay are those of a longest
+ *  increasing run of goal positions, and each of the others costs two moves.
+ *  The moves out of rows are vertical and the moves out of columns are
+ *  horizontal, so the conflicts of all rows and columns can be added.
+ *
+ *  A move never changes the order of the tiles in the line it moves along,
+ *  and of the two lines across the move that the tile leaves and enters,
+ *  only its goal line can change, so update() counts the conflicts of at
+ *  most one line, before and after the move, in O(N^2) time.
+ */
+
+public final class LinearConflictHeuristic implements Heuristic {
+    // the tails of the runs of conflicts(), one array per thread: the workers
+    // of HashDistributedSearch call a single heuristic at the same time
+    private final ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[4]);
+
+    public int estimate(Board board) {
+        int   n     = board.dimension();
+        int[] tails = tails(n);
+        int   sum   = board.manhattan();
+        for (int line = 0; line < n; line++)
+            sum += 2 * (conflicts(board, line, false, -1, 0, tails)
+                        + conflicts(board, line, true, -1, 0, tails));
+        return sum;
+    }
+
+    public int update(Board board, int estimate, int from, int to) {
+        int n    = board.dimension();
+        int tile = board.tileAt(to);
+        int goal = tile - 1;
+        int h    = estimate + distance(n, to, goal) - distance(n, from, goal);
+
+        // a move along a row changes two columns, and the other way round,
+        // but only the one of them that is the goal line of the tile can
+        // gain or lose a conflict; the tile was at from before the move
+        boolean column = from / n == to / n;
+        int     line   = column ? goal % n : goal / n;
+        if (line == (column ? from % n : from / n)) {
+            int[] tails = tails(n);
+            h += 2 * (conflicts(board, line, column, -1, 0, tails)
+                      - conflicts(board, line, column, from, tile, tails));
+        } else if (line == (column ? to % n : to / n)) {
+            int[] tails = tails(n);
+            h += 2 * (conflicts(board, line, column, -1, 0, tails)
+                      - conflicts(board, line, column, to, 0, tails));
+        }
+        return h;
+    }
+
+    // the scratch array of this thread, with room for n tails
+    private int[] tails(int n) {
+        int[] tails = scratch.get();
+        if (tails.length < n) {
+            tails = new int[n];
+            scratch.set(tails);
+        }
+        return tails;
+    }
+
+    // number of tiles of the given row (or column) that have to leave it, as
+    // if the square of the given index held the given tile instead; tails[j]
+    // is set to the least end of an increasing run of length j + 1
+    private static int conflicts(Board board, int line, boolean column, int index, int tile,
+                                 int[] tails) {
+        int n     = board.dimension();
+        int count = 0;
+        int runs  = 0;
+        for (int k = 0; k < n; k++) {
+            int square = column ? k * n + line : line * n + k;
+            int t      = square == index ? tile : board.tileAt(square);
+            if (t == 0)
+                continue;
+            int goal = t - 1;
+            if ((column ? goal % n : goal / n) != line)
+                continue;
+
+            // extend the longest increasing run of goal positions
+            int position = column ? goal / n : goal % n;
+            int j = 0;
+            while (j < runs && tails[j] < position)
+                j++;
+            tails[j] = position;
+            if (j == runs)
+                runs++;
+            count++;
+        }
+        return count - runs;
+    }
+
+    // Manhattan distance between the squares of row-major indices a and b
+    private static int distance(int n, int a, int b) {
+        return Math.abs(a / n - b / n) + Math.abs(a % n - b % n);
+    }
+}
@@ -0,0 +1,28 @@
+/******************************************************************************
+ *  Compilation:  javac ManhattanHeuristic.java
+ *  Execution:    none
+ *  Dependencies: Board.java Heuristic.java
+ *
+ *  The sum of the Manhattan distances of the tiles to their goal squares.
+ *
+ ******************************************************************************/
+
+
+/**
+ *  ManhattanHeuristic estimates the distance to the goal by the sum of the
+ *  Manhattan distances of the tiles to their goal squares: every move brings
+ *  a single tile one square closer at best. It is the default heuristic of
+ *  Solver. A board keeps its Manhattan distance up to date as tiles move, so
+ *  both estimate() and update() take constant time.
+ */
+
+public final class ManhattanHeuristic implements Heuristic {
+
+    public int estimate(Board board) {
+        return board.manhattan();
+    }
+
+    public int update(Board board, int estimate, int from, int to) {
+        return board.manhattan();
+    }
+}
@@ -0,0 +1,442 @@
+/******************************************************************************
+ *  Compilation:  javac PatternDatabase.java
+ *  Execution:    java PatternDatabase N output.pdb tile tile ...
+ *  Dependencies: Board.java StdOut.java
+ *
+ *  A pattern database: the least number of moves of a set of tiles (the
+ *  pattern) needed to bring them home, for every placement of the pattern.
+ *
+ *  A pattern database file is a header of 32-bit big-endian ints, the magic
+ *  number 0x50444231 ("PDB1"), the dimension N, the number k of tiles in the
+ *  pattern and the k tiles, followed by one 4-bit entry per placement of the
+ *  pattern, two to a byte, the first in the low bits.
+ *
+ * Usage: the 6-6-3 partition of the 15-puzzle
+ *  % java PatternDatabase 4 a.pdb 1 5 6 9 10 13
+ *  % java PatternDatabase 4 b.pdb 7 8 11 12 14 15
+ *  % java PatternDatabase 4 c.pdb 2 3 4
+ *
+ ******************************************************************************/
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import edu.princeton.cs.algs4.StdOut;
+
+
+/**
+ *  PatternDatabase holds, for every way of placing the tiles of a pattern on
+ *  the board, the least number of moves of pattern tiles it takes to bring
+ *  them to their goal squares, when the other tiles are indistinguishable and
+ *  moving them is free. That count only includes moves of pattern tiles, so
+ *  the counts of disjoint patterns can be added and are still a lower bound
+ *  on the number of moves; PatternHeuristic does so.
+ *
+ *  The count is never less than the Manhattan distance of the pattern tiles,
+ *  and has the same parity, so an entry only stores half the difference, in
+ *  4 bits; differences of more than 30 are stored as 30, which keeps the
+ *  estimate a lower bound. A placement is numbered by its rank among the
+ *  k-permutations of the N^2 squares, so the table has N^2! / (N^2 - k)!
+ *  entries: 2.9 MB for a 6-tile pattern of the 15-puzzle.
+ *
+ *  The table is built by a breadth-first search back from the goal over the
+ *  placements of the pattern and the blank, where moving the blank onto
+ *  another square costs nothing and swapping it with a pattern tile costs
+ *  one move; the search visits N^2! / (N^2 - k - 1)! states, with a byte
+ *  each (58 MB for a 6-tile pattern of the 15-puzzle). A table is built once,
+ *  written to a file, and then read by mapping the file into memory.
+ *
+ *  PatternDatabase throws an IllegalArgumentException if a file cannot be
+ *  opened or is not a well-formed pattern database file, and an
+ *  UncheckedIOException if reading or writing fails once it is open.
+ */
+
+public final class PatternDatabase {
+    /**
+     * The magic number at the start of every pattern database file: "PDB1" in
+     * ASCII.
+     */
+    public static final int MAGIC = 0x50444231;
+
+    private static final int MAX_SQUARES = 64;      // placements are bitmasks
+    private static final int MAX_EXCESS  = 15;      // largest 4-bit entry
+    private static final int UNSEEN      = 0xFF;    // distance not known yet
+
+    private final int        N;
+    private final int[]      tiles;     // the tiles of the pattern
+    private final int[]      indexOf;   // index of each tile in tiles, or -1
+    private final int[]      weights;   // weights[i]: place value of digit i
+    private final int        entries;   // number of placements of the pattern
+    private final ByteBuffer table;     // the 4-bit entries, two to a byte
+
+    private PatternDatabase(int n, int[] tiles, ByteBuffer table) {
+        int m = n * n;
+        int k = tiles.length;
+        this.N       = n;
+        this.tiles   = tiles;
+        this.indexOf = new int[m];
+        this.weights = new int[k];
+        this.entries = (int) placements(m, k);
+        this.table   = table;
+
+        Arrays.fill(indexOf, -1);
+        for (int i = k - 1, weight = 1; i >= 0; weight *= m - i, i--) {
+            indexOf[tiles[i]] = i;
+            weights[i]        = weight;
+        }
+    }
+
+    // number of ways of placing k distinct items on m squares
+    private static long placements(int m, int k) {
+        long count = 1;
+        for (int i = 0; i < k; i++)
+            count *= m - i;
+        return count;
+    }
+
+    // check the pattern of a database for N-by-N boards
+    private static void validate(int n, int[] tiles) {
+        if (n < 2 || n * n > MAX_SQUARES)
+            throw new IllegalArgumentException("dimension out of range: " + n);
+        if (tiles.length == 0 || tiles.length > n * n - 2)
+            throw new IllegalArgumentException("pattern size out of range: " + tiles.length);
+        boolean[] in = new boolean[n * n];
+        for (int tile : tiles) {
+            if (tile < 1 || tile >= n * n)
+                throw new IllegalArgumentException("tile out of range: " + tile);
+            if (in[tile])
+                throw new IllegalArgumentException("repeated tile: " + tile);
+            in[tile] = true;
+        }
+        if (placements(n * n, tiles.length + 1) > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("pattern too large: " + tiles.length + " tiles");
+    }
+
+    // rank of the placement of the first k items of squares[] among all
+    // placements of k items on m squares: the i-th digit, in radix m - i, is
+    // the number of free squares before the square of item i
+    private static int rank(int[] squares, int k, int m) {
+        long used = 0;
+        int  rank = 0;
+        for (int i = 0; i < k; i++) {
+            int s = squares[i];
+            rank  = rank * (m - i) + s - Long.bitCount(used & ((1L << s) - 1));
+            used |= 1L << s;
+        }
+        return rank;
+    }
+
+    // the placement of k items on m squares with the given rank, into squares[]
+    private static void unrank(int rank, int k, int m, int[] squares) {
+        for (int i = k - 1; i >= 0; i--) {
+            squares[i] = rank % (m - i);
+            rank /= m - i;
+        }
+        long used = 0;
+        for (int i = 0; i < k; i++) {
+            long free = ~used;
+            for (int j = squares[i]; j > 0; j--)
+                free &= free - 1;
+            squares[i] = Long.numberOfTrailingZeros(free);
+            used |= 1L << squares[i];
+        }
+    }
+
+    /**
+     * Builds the pattern database of the given tiles for N-by-N boards.
+     *
+     * @param  n the dimension N
+     * @param  tiles the tiles of the pattern
+     * @return the pattern database
+     * @throws NullPointerException if tiles is null
+     * @throws IllegalArgumentException if N is not between 2 and 8, if a tile
+     *         is not between 1 and N^2 - 1 or is repeated, or if the pattern
+     *         is empty, has every tile, or has more placements with the blank
+     *         than an int can number
+     */
+    public static PatternDatabase build(int n, int... tiles) {
+        if (tiles == null)
+            throw new NullPointerException("null argument");
+        validate(n, tiles);
+        int[] pattern = tiles.clone();
+        int   k       = pattern.length;
+        int   m       = n * n;
+
+        // dist[s]: the least number of pattern moves from state s to the goal,
+        // where a state is a placement of the k pattern tiles and then the
+        // blank; the blank is the last digit, so the states of a placement of
+        // the pattern are the m - k consecutive ones from its rank times m - k
+        byte[] dist = new byte[(int) placements(m, k + 1)];
+        Arrays.fill(dist, (byte) UNSEEN);
+
+        int[] squares = new int[k + 1];
+        for (int i = 0; i < k; i++)
+            squares[i] = pattern[i] - 1;
+        squares[k] = m - 1;
+        int goal = rank(squares, k + 1, m);
+        dist[goal] = 0;
+
+        // the states at distance d, which grows as free moves of the blank
+        // are found, and at distance d + 1; a state whose distance dropped
+        // after it was added to the next level is skipped there
+        IntList level = new IntList();
+        IntList next  = new IntList();
+        int[]   owner = new int[m];     // index of the tile on a square, or -1
+        Arrays.fill(owner, -1);
+        level.add(goal);
+        for (int d = 0; level.size > 0; d++) {
+            if (d + 1 >= UNSEEN)
+                throw new IllegalArgumentException("pattern too far from the goal");
+            for (int i = 0; i < level.size; i++) {
+                int s = level.items[i];
+                if ((dist[s] & 0xFF) != d)
+                    continue;
+                unrank(s, k + 1, m, squares);
+                for (int j = 0; j < k; j++)
+                    owner[squares[j]] = j;
+
+                int blank = squares[k];
+                int row   = blank / n;
+                int col   = blank % n;
+                for (int dir = 0; dir < 4; dir++) {
+                    int to;
+                    if      (dir == 0) to = row > 0     ? blank - n : -1;
+                    else if (dir == 1) to = col > 0     ? blank - 1 : -1;
+                    else if (dir == 2) to = row < n - 1 ? blank + n : -1;
+                    else               to = col < n - 1 ? blank + 1 : -1;
+                    if (to < 0)
+                        continue;
+
+                    int tile = owner[to];
+                    if (tile >= 0) squares[tile] = blank;
+                    squares[k] = to;
+                    int t    = rank(squares, k + 1, m);
+                    int cost = tile >= 0 ? d + 1 : d;
+                    if (cost < (dist[t] & 0xFF)) {
+                        dist[t] = (byte) cost;
+                        if (cost == d) level.add(t);
+                        else           next.add(t);
+                    }
+                    if (tile >= 0) squares[tile] = to;
+                    squares[k] = blank;
+                }
+
+                for (int j = 0; j < k; j++)
+                    owner[squares[j]] = -1;
+            }
+            IntList swap = level;
+            level = next;
+            next  = swap;
+            next.size = 0;
+        }
+
+        // each entry is the best state of its placement, whatever the blank
+        int    entries = (int) placements(m, k);
+        byte[] table   = new byte[(entries + 1) / 2];
+        for (int r = 0; r < entries; r++) {
+            int best = UNSEEN;
+            for (int b = 0; b < m - k; b++)
+                best = Math.min(best, dist[r * (m - k) + b] & 0xFF);
+
+            unrank(r, k, m, squares);
+            int manhattan = 0;
+            for (int i = 0; i < k; i++)
+                manhattan += distance(n, squares[i], pattern[i] - 1);
+            int excess = best == UNSEEN ? 0 : Math.min((best - manhattan) / 2, MAX_EXCESS);
+            table[r >>> 1] |= (byte) (excess << (4 * (r & 1)));
+        }
+        return new PatternDatabase(n, pattern, ByteBuffer.wrap(table));
+    }
+
+    // Manhattan distance between the squares of row-major indices a and b
+    private static int distance(int n, int a, int b) {
+        return Math.abs(a / n - b / n) + Math.abs(a % n - b % n);
+    }
+
+    // a growable list of ints
+    private static final class IntList {
+        private int[] items = new int[1 << 10];
+        private int   size;
+
+        void add(int item) {
+            if (size == items.length)
+                items = Arrays.copyOf(items, 2 * size);
+            items[size++] = item;
+        }
+    }
+
+    /**
+     * Reads the pattern database file with the given name by mapping it into
+     * memory; the entries are read from the mapping, not copied.
+     *
+     * @param  filename the name of the file
+     * @return the pattern database of the file
+     * @throws IllegalArgumentException if the file cannot be opened or is not a
+     *         pattern database file
+     */
+    public static PatternDatabase load(String filename) {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("could not open " + filename, e);
+        }
+
+        try (FileChannel ch = channel) {
+            long size = ch.size();
+            if (size < 12 || size > Integer.MAX_VALUE)
+                throw new IllegalArgumentException(filename + " is not a pattern database file");
+            ByteBuffer buffer = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int n = buffer.getInt(4);
+            int k = buffer.getInt(8);
+            if (buffer.getInt(0) != MAGIC || k < 1 || k > MAX_SQUARES || size < 12 + 4L * k)
+                throw new IllegalArgumentException(filename + " is not a pattern database file");
+            int[] tiles = new int[k];
+            for (int i = 0; i < k; i++)
+                tiles[i] = buffer.getInt(12 + 4 * i);
+            validate(n, tiles);
+
+            int header = 12 + 4 * k;
+            if (size != header + (placements(n * n, k) + 1) / 2)
+                throw new IllegalArgumentException(filename + " is not a pattern database file");
+            buffer.position(header);
+            return new PatternDatabase(n, tiles, buffer.slice());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes this pattern database to a file with the given name, replacing
+     * its contents.
+     *
+     * @param  filename the name of the file
+     * @throws IllegalArgumentException if the file cannot be opened
+     */
+    public void write(String filename) {
+        FileOutputStream file;
+        try {
+            file = new FileOutputStream(filename);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("could not open " + filename, e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(N);
+            out.writeInt(tiles.length);
+            for (int tile : tiles)
+                out.writeInt(tile);
+            for (int i = 0; i < table.capacity(); i++)
+                out.write(table.get(i));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the dimension N of the boards of this pattern database.
+     *
+     * @return the dimension N
+     */
+    public int dimension() {
+        return N;
+    }
+
+    /**
+     * Returns the tiles of the pattern.
+     *
+     * @return the tiles of the pattern
+     */
+    public int[] tiles() {
+        return tiles.clone();
+    }
+
+    /**
+     * Returns half the number of moves of pattern tiles, beyond their
+     * Manhattan distance, that it takes to bring them home from the placement
+     * of the pattern on the given board, capped at 15.
+     *
+     * @param  board the board, of dimension N
+     * @return the entry of the placement
+     */
+    int excess(Board board) {
+        return entry(rank(board));
+    }
+
+    /**
+     * Returns the entry of the placement of the pattern on the given board
+     * minus the entry of the board it was obtained from by sliding the tile
+     * that is now at index to from the index from.
+     *
+     * @param  board the board after the move, of dimension N
+     * @param  from the index of the moved tile before the move
+     * @param  to the index of the moved tile after the move
+     * @return the change of the entry of the placement
+     */
+    int change(Board board, int from, int to) {
+        // before the move, the moved tile was on the square from and the
+        // blank on the square to, so both placements are ranked in one pass
+        int  moved  = board.tileAt(to);
+        long seen   = 0;
+        long before = 0;
+        int  rank   = 0;
+        int  prev   = 0;
+        for (int s = 0; s < N * N; s++) {
+            int tile = board.tileAt(s);
+            int i    = indexOf[tile];
+            if (i >= 0) {
+                rank += (s - Long.bitCount(seen & ((1L << i) - 1))) * weights[i];
+                seen |= 1L << i;
+            }
+            int j = indexOf[s == from ? moved : s == to ? 0 : tile];
+            if (j >= 0) {
+                prev   += (s - Long.bitCount(before & ((1L << j) - 1))) * weights[j];
+                before |= 1L << j;
+            }
+        }
+        return entry(rank) - entry(prev);
+    }
+
+    // rank of the placement of the pattern on the board, read from the board
+    // square by square: the i-th digit of the rank is the square of tile i
+    // minus the number of tiles before i on smaller squares, which are those
+    // seen so far
+    private int rank(Board board) {
+        long seen = 0;      // the indices in tiles[] of the tiles seen so far
+        int  rank = 0;
+        for (int s = 0; s < N * N; s++) {
+            int i = indexOf[board.tileAt(s)];
+            if (i < 0)
+                continue;
+            rank += (s - Long.bitCount(seen & ((1L << i) - 1))) * weights[i];
+            seen |= 1L << i;
+        }
+        return rank;
+    }
+
+    private int entry(int rank) {
+        return (table.get(rank >>> 1) >>> (4 * (rank & 1))) & 0xF;
+    }
+
+    /**
+     * Builds the pattern database of the given tiles and writes it to a file.
+     */
+    public static void main(String[] args) {
+        int   n     = Integer.parseInt(args[0]);
+        int[] tiles = new int[args.length - 2];
+        for (int i = 0; i < tiles.length; i++)
+            tiles[i] = Integer.parseInt(args[i + 2]);
+
+        PatternDatabase pdb = build(n, tiles);
+        pdb.write(args[1]);
+        StdOut.println(pdb.entries + " entries written to " + args[1]);
+    }
+}
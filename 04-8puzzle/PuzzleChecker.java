@@ -1,7 +1,7 @@
 /******************************************************************************
  *  Compilation:  javac PuzzleChecker.java
  *  Execution:    java PuzzleChecker filename1.txt filename2.txt ...
- *  Dependencies: Board.java Solver.java
+ *  Dependencies: Board.java Solver.java TokenReader.java
  *
  *  This program creates an initial board from each filename specified
  *  on the command line and finds the minimum number of moves to
@@ -25,7 +25,6 @@
  *
  ******************************************************************************/
 
-import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdOut;
 
 public class PuzzleChecker {
@@ -36,7 +35,7 @@ public class PuzzleChecker {
         for (String filename : args) {
 
             // read in the board specified in the filename
-            In in = new In(filename);
+            TokenReader in = new TokenReader(filename);
             int N = in.readInt();
             int[][] tiles = new int[N][N];
             for (int i = 0; i < N; i++) {
@@ -44,6 +43,7 @@ public class PuzzleChecker {
                     tiles[i][j] = in.readInt();
                 }
             }
+            in.close();
 
             // solve the slider puzzle
             Board initial = new Board(tiles);
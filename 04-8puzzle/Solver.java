@@ -1,70 +1,210 @@
-
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import edu.princeton.cs.algs4.In;
-import edu.princeton.cs.algs4.MinPQ;
 import edu.princeton.cs.algs4.StdOut;
 
 public class Solver {
-    private SearchNode last;
-    private int        totalMoves;
-    private boolean    isSolvable;
+    // search algorithms: A* keeps every generated node in memory; IDA* runs
+    // depth-first searches bounded by increasing f-costs on a single board
+    // moved in place, so it only needs memory proportional to the depth of
+    // the solution, at the cost of expanding some nodes more than once;
+    // HDA* runs A* on one thread per processor, each owning the boards of a
+    // slice of the hash space (see HashDistributedSearch); BIDIRECTIONAL
+    // also searches back from the goal, and meets halfway (see
+    // BidirectionalSearch)
+    public enum Mode { ASTAR, IDASTAR, HDASTAR, BIDIRECTIONAL }
+
+    // the default heuristic
+    private static final Heuristic MANHATTAN = new ManhattanHeuristic();
+
+    private List<Board> solution;   // boards from initial to goal, or null
+    private int         totalMoves;
+    private boolean     isSolvable;
+    private Heuristic   heuristic;
 
-    private class SearchNode implements Comparable<SearchNode> {
+    // IDA*: the board being searched, and the blank index before each move
+    // of the current path
+    private Board  board;
+    private int[]  path;
+
+    private class SearchNode {
         private Board      board;
         private int        priority;
         private SearchNode prev;
         private int        moves;
+        private int        estimate;    // the heuristic estimate of the board
 
-        public SearchNode(Board b, SearchNode prev, int moves) {
-            board      = b;
-            priority   = b.manhattan() + moves;
-            this.prev  = prev;
-            this.moves = moves;
-        }
-
-        public int compareTo(SearchNode s) {
-            return Integer.compare(this.priority, s.priority);
+        public SearchNode(Board b, SearchNode prev, int moves, int estimate) {
+            board         = b;
+            priority      = estimate + moves;
+            this.prev     = prev;
+            this.moves    = moves;
+            this.estimate = estimate;
         }
     }
 
     // find a solution to the initial board (using the A* algorithm)
     public Solver(Board initial) {
-        if (initial == null)
+        this(initial, Mode.ASTAR, MANHATTAN);
+    }
+
+    // find a solution to the initial board using the given algorithm
+    public Solver(Board initial, Mode mode) {
+        this(initial, mode, MANHATTAN);
+    }
+
+    // find a solution to the initial board (using the A* algorithm) guided
+    // by the given heuristic
+    public Solver(Board initial, Heuristic heuristic) {
+        this(initial, Mode.ASTAR, heuristic);
+    }
+
+    // find a solution to the initial board using the given algorithm, guided
+    // by the given heuristic; the solution is only a shortest one if the
+    // heuristic never overestimates the number of moves
+    public Solver(Board initial, Mode mode, Heuristic heuristic) {
+        if (initial == null || mode == null || heuristic == null)
             throw new NullPointerException("null argument");
 
-        MinPQ<SearchNode> minPQSearchNode = new MinPQ<>();
-        MinPQ<SearchNode> minPQSearchTwin = new MinPQ<>();
-        SearchNode s     = new SearchNode(initial, null, 0);
-        SearchNode sTwin = new SearchNode(initial.twin(), null, 0);
+        // unsolvable boards are told apart by parity, without any search
+        if (!initial.isSolvable()) {
+            solution   = null;
+            totalMoves = -1;
+            isSolvable = false;
+            return;
+        }
+
+        isSolvable     = true;
+        this.heuristic = heuristic;
+        if (mode == Mode.IDASTAR)
+            solveIDAStar(initial);
+        else if (mode == Mode.HDASTAR)
+            solution = HashDistributedSearch.solve(initial, heuristic,
+                                                   Runtime.getRuntime().availableProcessors());
+        else if (mode == Mode.BIDIRECTIONAL)
+            solution = BidirectionalSearch.solve(initial, heuristic);
+        else
+            solveAStar(initial);
+        totalMoves     = solution.size() - 1;
+        this.heuristic = null;
+    }
+
+    private void solveAStar(Board initial) {
+        BucketQueue<SearchNode> open = new BucketQueue<>();
+        TranspositionTable      seen = new TranspositionTable();
+        SearchNode s = new SearchNode(initial, null, 0, heuristic.estimate(initial));
 
-        minPQSearchNode.insert(s);
-        minPQSearchTwin.insert(sTwin);
+        open.insert(s, s.priority, s.estimate);
+        seen.improve(s.board, 0);
 
         while (true) {
-            s     = minPQSearchNode.delMin();
-            sTwin = minPQSearchTwin.delMin();
+            s = delMin(open, seen);
 
-            if (s.board.isGoal()) {
-                last       = s;
-                totalMoves = s.moves;
-                isSolvable = true;
+            if (s.board.isGoal())
                 break;
-            } else if (sTwin.board.isGoal()) {
-                last       = null;
-                totalMoves = -1;
-                isSolvable = false;
+            enqueueNodes(s, open, seen);
+        }
+
+        // follow the chain back to the initial board
+        solution = new ArrayList<>();
+        for (SearchNode sn = s; sn != null; sn = sn.prev)
+            solution.add(sn.board);
+        Collections.reverse(solution);
+    }
+
+    // remove the node with the smallest priority, skipping the stale nodes
+    // of boards that were reached again with fewer moves after their insertion
+    private SearchNode delMin(BucketQueue<SearchNode> open, TranspositionTable seen) {
+        SearchNode sn = open.delMin();
+        while (sn.moves > seen.get(sn.board))
+            sn = open.delMin();
+        return sn;
+    }
+
+    // enqueue the neighbors of the node that are reached with fewer moves
+    // than ever before; this also discards the grandparent
+    private void enqueueNodes(SearchNode sn, BucketQueue<SearchNode> open, TranspositionTable seen) {
+        int to = sn.board.blankIndex();
+        for (Board b : sn.board.neighbors()) {
+            if (seen.improve(b, sn.moves + 1)) {
+                int h = heuristic.update(b, sn.estimate, b.blankIndex(), to);
+                SearchNode child = new SearchNode(b, sn, sn.moves + 1, h);
+                open.insert(child, child.priority, h);
+            }
+        }
+    }
+
+    private void solveIDAStar(Board initial) {
+        board = initial.copy();
+        path  = new int[16];
+
+        // raise the bound to the smallest f-cost that exceeded it, until the
+        // goal is found within the bound; the board is solvable, so it will be
+        int h     = heuristic.estimate(board);
+        int bound = h;
+        int moves;
+        while (true) {
+            int t = search(0, h, bound, -1);
+            if (t < 0) {
+                moves = -t - 1;
                 break;
             }
-            enqueueNodes(s, minPQSearchNode);
-            enqueueNodes(sTwin, minPQSearchTwin);
+            bound = t;
+        }
+
+        // replay the moves of the path from the initial board
+        solution = new ArrayList<>();
+        Board b = initial;
+        solution.add(b);
+        for (int g = 0; g < moves; g++) {
+            int next = g + 1 < moves ? path[g + 1] : board.blankIndex();
+            b = b.slide(next);
+            solution.add(b);
         }
+        board = null;
+        path  = null;
     }
 
-    private void enqueueNodes(SearchNode sn, MinPQ<SearchNode> minPQ) {
-        for (Board b : sn.board.neighbors()) {
-            if ((sn.prev == null) || !(b.equals(sn.prev.board)))
-                minPQ.insert(new SearchNode(b, sn, sn.moves + 1));
+    // depth-first search from the current board, reached with g moves, with
+    // heuristic estimate h and with the blank at from before the last move;
+    // returns -(g + 1) if the goal was found, or else the smallest f-cost that
+    // exceeded the bound
+    private int search(int g, int h, int bound, int from) {
+        int f = g + h;
+        if (f > bound)
+            return f;
+        if (board.isGoal())
+            return -(g + 1);
+
+        if (g == path.length)
+            path = Arrays.copyOf(path, 2 * g);
+
+        int n     = board.dimension();
+        int blank = board.blankIndex();
+        int row   = blank / n;
+        int col   = blank % n;
+        int min   = Integer.MAX_VALUE;
+        for (int d = 0; d < 4; d++) {
+            int next;
+            if      (d == 0) next = row > 0     ? blank - n : -1;
+            else if (d == 1) next = col > 0     ? blank - 1 : -1;
+            else if (d == 2) next = row < n - 1 ? blank + n : -1;
+            else             next = col < n - 1 ? blank + 1 : -1;
+            // never undo the last move
+            if (next < 0 || next == from)
+                continue;
+
+            path[g] = blank;
+            board.slideInPlace(next);
+            int t = search(g + 1, heuristic.update(board, h, next, blank), bound, blank);
+            if (t < 0)
+                return t;
+            board.slideInPlace(blank);
+            min = Math.min(min, t);
         }
+        return min;
     }
 
     // is the initial board solvable?
@@ -77,20 +217,12 @@ public class Solver {
         return totalMoves;
     }
 
-    // sequence of boards in a shortest solution; null if unsolvable
+    // sequence of boards in a shortest solution, from the initial board to
+    // the goal; null if unsolvable
     public Iterable<Board> solution() {
         if (!isSolvable)
             return null;
-        else {
-            Stack<Board> solution = new Stack<>();
-
-            SearchNode s = last;
-            while (s != null) {
-                solution.push(s.board);
-                s = s.prev;
-            }
-            return solution;
-        }
+        return Collections.unmodifiableList(solution);
     }
 
     // solve a slider puzzle (given below)
@@ -104,8 +236,23 @@ public class Solver {
                 blocks[i][j] = in.readInt();
         Board initial = new Board(blocks);
 
-        // solve the puzzle
-        Solver solver = new Solver(initial);
+        // solve the puzzle, with A* unless another mode is given, guided by
+        // the heuristic given after the mode: hamming, manhattan (the
+        // default), linear, or a list of pattern database files
+        Mode mode = args.length > 1 ? Mode.valueOf(args[1].toUpperCase()) : Mode.ASTAR;
+        Heuristic heuristic = MANHATTAN;
+        if (args.length > 2) {
+            if      (args[2].equals("hamming"))   heuristic = new HammingHeuristic();
+            else if (args[2].equals("manhattan")) heuristic = new ManhattanHeuristic();
+            else if (args[2].equals("linear"))    heuristic = new LinearConflictHeuristic();
+            else {
+                PatternDatabase[] databases = new PatternDatabase[args.length - 2];
+                for (int i = 0; i < databases.length; i++)
+                    databases[i] = PatternDatabase.load(args[i + 2]);
+                heuristic = new PatternHeuristic(databases);
+            }
+        }
+        Solver solver = new Solver(initial, mode, heuristic);
 
         // print solution to standard output
         if (!solver.isSolvable())
@@ -0,0 +1,426 @@
+/******************************************************************************
+ *  Compilation:  javac TokenReader.java
+ *  Execution:    none
+ *  Dependencies:
+ *
+ *  A fast whitespace tokenizer over a file or standard input that reads
+ *  through NIO channels and parses numbers straight from the bytes.
+ *
+ ******************************************************************************/
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/**
+ *  TokenReader is a drop-in replacement for the In and StdIn methods that the
+ *  clients of this repository use to read their input (isEmpty, readString,
+ *  readInt and readDouble), built for inputs of gigabytes. In and StdIn go
+ *  through Scanner, which matches every token against a regular expression and
+ *  builds a String for it; TokenReader instead reads the input in large chunks
+ *  into a direct buffer and scans the bytes in place.
+ *
+ *  Besides the In-like methods, a client can step through the input with
+ *  nextToken() and look at the current token as a slice of the buffer with
+ *  tokenLength() and tokenByte(), or parse it with tokenInt(), tokenLong() and
+ *  tokenDouble(), none of which allocate. A token is any maximal run of bytes
+ *  greater than the ASCII space; readString() decodes it as UTF-8. The current
+ *  token is only valid until the next call that reads from the input.
+ *
+ *  Integers are parsed exactly and throw a NumberFormatException on malformed
+ *  or out-of-range tokens, like Integer.parseInt. Decimal numbers with at most
+ *  15 significant digits and a small exponent are parsed exactly without
+ *  allocation; any other token falls back to Double.parseDouble.
+ *
+ *  TokenReader throws an IllegalArgumentException if the file cannot be
+ *  opened and a NoSuchElementException when reading past the last token.
+ */
+
+public final class TokenReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    // powers of ten that are exactly representable as a double
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ReadableByteChannel channel;
+    private ByteBuffer buf;     // bytes read from the channel
+    private int        pos;     // next byte to scan
+    private int        limit;   // end of the bytes read into buf
+    private int        start;   // first byte of the current token
+    private int        end;     // one past the last byte of the current token
+    private boolean    eof;     // has the channel been exhausted?
+
+    /**
+     * Initializes a token reader from standard input.
+     */
+    public TokenReader() {
+        this(new FileInputStream(FileDescriptor.in).getChannel());
+    }
+
+    /**
+     * Initializes a token reader from the given file.
+     *
+     * @param  filename the name of the file
+     * @throws IllegalArgumentException if the file cannot be opened
+     */
+    public TokenReader(String filename) {
+        this(open(filename));
+    }
+
+    /**
+     * Initializes a token reader from the given channel.
+     *
+     * @param  channel the channel to read from
+     * @throws NullPointerException if the channel is null
+     */
+    public TokenReader(ReadableByteChannel channel) {
+        if (channel == null)
+            throw new NullPointerException("null argument");
+        this.channel = channel;
+        this.buf     = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    private static FileChannel open(String filename) {
+        try {
+            return FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("could not open " + filename, e);
+        }
+    }
+
+    /**
+     * Returns true if there are no more tokens in the input.
+     *
+     * @return true if only whitespace is left. False otherwise
+     */
+    public boolean isEmpty() {
+        return !skipWhitespace();
+    }
+
+    /**
+     * Advances to the next token of the input.
+     *
+     * @return true if there was a next token. False at the end of the input
+     */
+    public boolean nextToken() {
+        if (!skipWhitespace())
+            return false;
+
+        start = pos;
+        while (true) {
+            while (pos < limit && (buf.get(pos) & 0xff) > ' ')
+                pos++;
+            if (pos < limit || !refill(start))
+                break;
+        }
+        end = pos;
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes of the current token.
+     *
+     * @return the length of the current token
+     */
+    public int tokenLength() {
+        return end - start;
+    }
+
+    /**
+     * Returns one byte of the current token, without copying the token.
+     *
+     * @param  i the index of the byte, between 0 and tokenLength() - 1
+     * @return the i-th byte of the current token
+     * @throws IndexOutOfBoundsException if i is out of range
+     */
+    public byte tokenByte(int i) {
+        if (i < 0 || i >= end - start)
+            throw new IndexOutOfBoundsException("token index " + i);
+        return buf.get(start + i);
+    }
+
+    /**
+     * Copies the bytes of the current token into the given array.
+     *
+     * @param  dst the array that receives the bytes
+     * @param  offset the first index of dst to write
+     * @return the number of bytes copied
+     * @throws IndexOutOfBoundsException if the token does not fit in dst
+     */
+    public int copyToken(byte[] dst, int offset) {
+        int n = end - start;
+        ByteBuffer slice = buf.duplicate();
+        slice.limit(end).position(start);
+        slice.get(dst, offset, n);
+        return n;
+    }
+
+    /**
+     * Returns the current token decoded as a UTF-8 string.
+     *
+     * @return the current token
+     */
+    public String tokenString() {
+        byte[] bytes = new byte[end - start];
+        copyToken(bytes, 0);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses the current token as an int.
+     *
+     * @return the current token as an int
+     * @throws NumberFormatException if the token is not an int
+     */
+    public int tokenInt() {
+        long value = tokenLong();
+        if (value != (int) value)
+            throw new NumberFormatException("int out of range: " + tokenString());
+        return (int) value;
+    }
+
+    /**
+     * Parses the current token as a long.
+     *
+     * @return the current token as a long
+     * @throws NumberFormatException if the token is not a long
+     */
+    public long tokenLong() {
+        int i = start;
+        boolean negative = false;
+        byte b = (i < end) ? buf.get(i) : 0;
+        if (b == '-' || b == '+') {
+            negative = (b == '-');
+            i++;
+        }
+        if (i == end)
+            throw new NumberFormatException("not a number: " + tokenString());
+
+        // accumulate as a negative number so Long.MIN_VALUE fits
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buf.get(i) - '0';
+            if (digit < 0 || digit > 9)
+                throw new NumberFormatException("not a number: " + tokenString());
+            if (value < (Long.MIN_VALUE + digit) / 10)
+                throw new NumberFormatException("long out of range: " + tokenString());
+            value = value * 10 - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE)
+                throw new NumberFormatException("long out of range: " + tokenString());
+            value = -value;
+        }
+        return value;
+    }
+
+    /**
+     * Parses the current token as a double.
+     *
+     * @return the current token as a double
+     * @throws NumberFormatException if the token is not a double
+     */
+    public double tokenDouble() {
+        int i = start;
+        boolean negative = false;
+        byte b = (i < end) ? buf.get(i) : 0;
+        if (b == '-' || b == '+') {
+            negative = (b == '-');
+            i++;
+        }
+
+        long mantissa = 0;  // significant digits, at most 15 of them
+        int  digits   = 0;  // number of significant digits seen
+        int  exponent = 0;  // decimal exponent to apply to the mantissa
+        boolean point = false;
+        boolean any   = false;
+        for (; i < end; i++) {
+            b = buf.get(i);
+            if (b == '.' && !point) {
+                point = true;
+            } else if (b >= '0' && b <= '9') {
+                any = true;
+                if (mantissa == 0 && b == '0') {
+                    if (point) exponent--;
+                } else if (digits < 15) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (point) exponent--;
+                } else {
+                    return slowDouble();
+                }
+            } else {
+                break;
+            }
+        }
+        if (!any)
+            return slowDouble();
+
+        if (i < end) {
+            if (b != 'e' && b != 'E')
+                return slowDouble();
+            i++;
+            boolean negativeExp = false;
+            b = (i < end) ? buf.get(i) : 0;
+            if (b == '-' || b == '+') {
+                negativeExp = (b == '-');
+                i++;
+            }
+            if (i == end)
+                return slowDouble();
+            int e = 0;
+            for (; i < end; i++) {
+                int digit = buf.get(i) - '0';
+                if (digit < 0 || digit > 9 || e > 1000)
+                    return slowDouble();
+                e = e * 10 + digit;
+            }
+            exponent += negativeExp ? -e : e;
+        }
+
+        // a mantissa below 2^53 times or divided by an exact power of ten is
+        // rounded once, so the result is the correctly rounded double
+        double value;
+        if (mantissa == 0)
+            value = 0.0;
+        else if (exponent >= 0 && exponent < POW10.length)
+            value = mantissa * POW10[exponent];
+        else if (exponent < 0 && -exponent < POW10.length)
+            value = mantissa / POW10[-exponent];
+        else
+            return slowDouble();
+        return negative ? -value : value;
+    }
+
+    private double slowDouble() {
+        return Double.parseDouble(tokenString());
+    }
+
+    /**
+     * Reads the next token and returns it as a string.
+     *
+     * @return the next token
+     * @throws NoSuchElementException if there are no more tokens
+     */
+    public String readString() {
+        advance();
+        return tokenString();
+    }
+
+    /**
+     * Reads the next token and returns it as an int.
+     *
+     * @return the next token as an int
+     * @throws NoSuchElementException if there are no more tokens
+     * @throws NumberFormatException if the token is not an int
+     */
+    public int readInt() {
+        advance();
+        return tokenInt();
+    }
+
+    /**
+     * Reads the next token and returns it as a long.
+     *
+     * @return the next token as a long
+     * @throws NoSuchElementException if there are no more tokens
+     * @throws NumberFormatException if the token is not a long
+     */
+    public long readLong() {
+        advance();
+        return tokenLong();
+    }
+
+    /**
+     * Reads the next token and returns it as a double.
+     *
+     * @return the next token as a double
+     * @throws NoSuchElementException if there are no more tokens
+     * @throws NumberFormatException if the token is not a double
+     */
+    public double readDouble() {
+        advance();
+        return tokenDouble();
+    }
+
+    // move to the next token or fail
+    private void advance() {
+        if (!nextToken())
+            throw new NoSuchElementException("no more tokens");
+    }
+
+    // move pos to the next non-whitespace byte, reading more input as needed;
+    // returns false if the input is exhausted
+    private boolean skipWhitespace() {
+        while (true) {
+            while (pos < limit) {
+                if ((buf.get(pos) & 0xff) > ' ')
+                    return true;
+                pos++;
+            }
+            if (!refill(pos))
+                return false;
+        }
+    }
+
+    // discard the bytes before keep, read more input after the remaining ones,
+    // and shift the indices accordingly; returns false if nothing was read
+    private boolean refill(int keep) {
+        if (eof)
+            return false;
+
+        int remaining = limit - keep;
+        if (remaining == buf.capacity()) {
+            // a single token fills the buffer: make room for it to grow
+            ByteBuffer bigger = ByteBuffer.allocateDirect(2 * buf.capacity());
+            buf.clear();
+            bigger.put(buf);
+            buf = bigger;
+        } else {
+            buf.limit(limit).position(keep);
+            buf.compact();
+        }
+
+        int n;
+        try {
+            do {
+                n = channel.read(buf);
+            } while (n == 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        start -= keep;
+        end   -= keep;
+        pos   -= keep;
+        limit  = buf.position();
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Closes the underlying channel.
+     */
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
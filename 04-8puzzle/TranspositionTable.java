@@ -0,0 +1,121 @@
+/******************************************************************************
+ *  Compilation:  javac TranspositionTable.java
+ *  Execution:    none
+ *  Dependencies: Board.java
+ *
+ *  The cheapest known cost of reaching each board seen by a search.
+ *
+ ******************************************************************************/
+
+
+/**
+ *  TranspositionTable maps each board reached by a search to the smallest
+ *  number of moves it was reached with so far (its g-cost), so that a search
+ *  can discard a path to a board that is no shorter than one it already has,
+ *  instead of expanding the same board again and again.
+ *
+ *  It is a hash table with linear probing in parallel arrays, keyed by the
+ *  Zobrist hash of the boards: the full 64-bit hash is stored next to each
+ *  board and compared first, so Board.equals() is only called when the hashes
+ *  match. The table doubles when it becomes half full, so get and improve
+ *  take constant expected time.
+ */
+
+final class TranspositionTable {
+    private Board[] boards;
+    private long[]  hashes;     // hashes[i]: Zobrist hash of boards[i]
+    private int[]   costs;      // costs[i]: best g-cost of boards[i]
+    private int     n;          // number of boards
+    private int     mask;       // table length minus one
+
+    /**
+     * Initializes an empty table.
+     */
+    TranspositionTable() {
+        allocate(1 << 10);
+    }
+
+    private void allocate(int m) {
+        boards = new Board[m];
+        hashes = new long[m];
+        costs  = new int[m];
+        mask   = m - 1;
+        n      = 0;
+    }
+
+    // index of the slot of the board, or of the empty slot where it belongs
+    private int slot(Board board, long hash) {
+        int i = (int) (hash ^ (hash >>> 32)) & mask;
+        while (boards[i] != null) {
+            if (hashes[i] == hash && boards[i].equals(board))
+                return i;
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the number of boards in the table.
+     *
+     * @return the number of boards
+     */
+    int size() {
+        return n;
+    }
+
+    /**
+     * Returns the best known g-cost of the board.
+     *
+     * @param  board the board
+     * @return the best g-cost, or Integer.MAX_VALUE if the board is not in the
+     *         table
+     */
+    int get(Board board) {
+        int i = slot(board, board.zobrist());
+        return boards[i] == null ? Integer.MAX_VALUE : costs[i];
+    }
+
+    /**
+     * Records that the board can be reached with the given g-cost, if that is
+     * cheaper than any cost known so far.
+     *
+     * @param  board the board
+     * @param  cost the g-cost
+     * @return true if the cost was recorded. False if the board is already
+     *         known with the same or a smaller cost
+     */
+    boolean improve(Board board, int cost) {
+        long hash = board.zobrist();
+        int  i    = slot(board, hash);
+        if (boards[i] != null) {
+            if (costs[i] <= cost)
+                return false;
+            costs[i] = cost;
+            return true;
+        }
+
+        boards[i] = board;
+        hashes[i] = hash;
+        costs[i]  = cost;
+        n++;
+        if (2 * n > boards.length)
+            resize(2 * boards.length);
+        return true;
+    }
+
+    private void resize(int m) {
+        Board[] oldBoards = boards;
+        long[]  oldHashes = hashes;
+        int[]   oldCosts  = costs;
+        allocate(m);
+        for (int i = 0; i < oldBoards.length; i++) {
+            if (oldBoards[i] == null)
+                continue;
+            int j = slot(oldBoards[i], oldHashes[i]);
+            boards[j] = oldBoards[i];
+            hashes[j] = oldHashes[i];
+            costs[j]  = oldCosts[i];
+            n++;
+        }
+    }
+}
@@ -1,7 +1,7 @@
 /******************************************************************************
  *  Compilation:  javac RangeSearchVisualizer.java
  *  Execution:    java RangeSearchVisualizer input.txt
- *  Dependencies: PointSET.java KdTree.java
+ *  Dependencies: PointSET.java KdTree.java TokenReader.java
  *
  *  Read points from a file (specified as a command-line arugment) and
  *  draw to standard draw. Also draw all of the points in the rectangle
@@ -12,7 +12,6 @@
  *
  ******************************************************************************/
 
-import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.Point2D;
 import edu.princeton.cs.algs4.RectHV;
 import edu.princeton.cs.algs4.StdDraw;
@@ -22,7 +21,7 @@ public class RangeSearchVisualizer {
     public static void main(String[] args) {
 
         String filename = args[0];
-        In in = new In(filename);
+        TokenReader in = new TokenReader(filename);
 
         StdDraw.show(0);
 